@@ -52,6 +52,15 @@ class ACL(contextName: String, group2users: Map<String, Array<String>>, branchPa
         return doCheck(user, branch, path) { obj: AccessMode -> obj.allowsRead() }
     }
 
+    override fun isUniformSubtree(branch: String, path: String): Boolean {
+        val prefix: String = StringHelper.normalizeDir(path)
+        for ((key, branches) in path2branch2acl.tailMap(prefix, false)) {
+            if (!key.startsWith(prefix)) break
+            if (branches.containsKey(branch) || branches.containsKey(NoBranch)) return false
+        }
+        return true
+    }
+
     override fun canWrite(user: User, branch: String, path: String): Boolean {
         return doCheck(user, branch, path) { obj: AccessMode -> obj.allowsWrite() }
     }
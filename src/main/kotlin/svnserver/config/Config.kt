@@ -8,6 +8,7 @@
 package svnserver.config
 
 import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import svnserver.server.ConnectionEngine
 import java.util.*
 import java.util.concurrent.TimeUnit
 
@@ -23,12 +24,54 @@ class Config {
     var repositoryMapping: RepositoryMappingConfig = RepositoryListMappingConfig()
     var userDB: UserDBConfig = LocalUserDBConfig()
     var cacheConfig: CacheConfig = PersistentCacheConfig()
+    var storage: StorageConfig = StorageConfig()
     var shared = ArrayList<SharedConfig>()
     var port: Int = 3690
     var reuseAddress: Boolean = false
     var compressionLevel: SVNDeltaCompression = SVNDeltaCompression.LZ4
+
+    /**
+     * Send already compressed binary files without svndiff compression.
+     */
+    var adaptiveCompression: Boolean = false
     var shutdownTimeout: Long = TimeUnit.SECONDS.toMillis(5)
     var parallelIndexing: Boolean = true
+    var connectionEngine: ConnectionEngine = ConnectionEngine.Threads
+
+    /**
+     * Maximum concurrent client sessions (0 - unlimited).
+     */
+    var maxSessions: Int = 0
+
+    /**
+     * How many files are prepared ahead of time during update/checkout (0 - disabled).
+     */
+    var prefetchFiles: Int = 0
+
+    /**
+     * Maximum number of cached svndiff deltas (0 - disabled).
+     */
+    var deltaCacheSize: Long = 0
+
+    /**
+     * How many revisions are prepared ahead of time during replay-range (0 - disabled).
+     */
+    var replayLookAhead: Int = 0
+
+    /**
+     * Memory limit for revisions prepared ahead of time by all replay-range commands, in megabytes.
+     */
+    var replayLookAheadMemoryMb: Int = 64
+
+    /**
+     * Memory limit for decoded git trees shared by all repositories, in megabytes.
+     */
+    var treeCacheSizeMb: Int = 64
+
+    /**
+     * Maximum number of resolved directory nodes shared by all repositories.
+     */
+    var treeNodeCacheSize: Int = 65536
 
     constructor()
     constructor(host: String, port: Int) {
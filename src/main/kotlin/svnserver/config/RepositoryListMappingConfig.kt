@@ -16,6 +16,7 @@ import svnserver.repository.RepositoryMapping
 import svnserver.repository.VcsAccess
 import svnserver.repository.git.GitBranch
 import svnserver.repository.git.GitRepository
+import svnserver.repository.git.ObjectReaders
 import java.io.IOException
 import java.nio.file.Path
 import java.nio.file.Paths
@@ -50,6 +51,9 @@ class RepositoryListMappingConfig : RepositoryMappingConfig {
                 throw RuntimeException(String.format("[%s]: failed to initialize", repository), e)
             } catch (e: SVNException) {
                 throw RuntimeException(String.format("[%s]: failed to initialize", repository), e)
+            } finally {
+                // Runs on common pool threads, which must not keep readers of this repository.
+                ObjectReaders.release()
             }
         }
         if (canUseParallelIndexing) {
@@ -0,0 +1,66 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.config
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig
+
+/**
+ * JGit pack storage tuning.
+ *
+ * Defaults are the same as JGit defaults.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class StorageConfig {
+    /**
+     * Maximum number of pack files kept open.
+     */
+    var packedGitOpenFiles: Int = 128
+
+    /**
+     * Memory limit for pack file windows, in megabytes.
+     */
+    var packedGitLimitMb: Int = 10
+
+    /**
+     * Size of single pack file window, in kilobytes.
+     */
+    var packedGitWindowSizeKb: Int = 8
+
+    /**
+     * Use memory mapping for pack file windows.
+     */
+    var packedGitMmap: Boolean = false
+
+    /**
+     * Memory limit for cached delta bases, in megabytes.
+     */
+    var deltaBaseCacheLimitMb: Int = 10
+
+    /**
+     * Objects bigger than this size are streamed instead of being loaded into memory, in megabytes.
+     */
+    var streamFileThresholdMb: Int = 50
+
+    /**
+     * Register pack cache statistics MBean in JMX.
+     */
+    var exposeStatsViaJmx: Boolean = true
+
+    fun install() {
+        val config = WindowCacheConfig()
+        config.packedGitOpenFiles = packedGitOpenFiles
+        config.packedGitLimit = packedGitLimitMb.toLong() * 1024 * 1024
+        config.packedGitWindowSize = packedGitWindowSizeKb * 1024
+        config.setPackedGitMMAP(packedGitMmap)
+        config.deltaBaseCacheLimit = deltaBaseCacheLimitMb * 1024 * 1024
+        config.streamFileThreshold = streamFileThresholdMb * 1024 * 1024
+        config.setExposeStatsViaJmx(exposeStatsViaJmx)
+        config.install()
+    }
+}
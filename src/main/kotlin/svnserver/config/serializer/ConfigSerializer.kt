@@ -27,6 +27,7 @@ import svnserver.ext.gitlab.config.GitLabConfig
 import svnserver.ext.gitlab.config.HttpLfsMode
 import svnserver.ext.gitlab.mapping.GitLabMappingConfig
 import svnserver.ext.gitlfs.LocalLfsConfig
+import svnserver.ext.gitlfs.storage.network.LfsHttpCacheConfig
 import svnserver.ext.keys.KeyUserDBConfig
 import svnserver.ext.keys.KeysConfig
 import svnserver.ext.web.config.ListenHttpConfig
@@ -98,6 +99,7 @@ class ConfigSerializer {
             "!fileLfs" to FileLfsMode::class.java,
             "!gitlab" to GitLabConfig::class.java,
             "!httpLfs" to HttpLfsMode::class.java,
+            "!httpLfsCache" to LfsHttpCacheConfig::class.java,
             "!gitlabMapping" to GitLabMappingConfig::class.java,
             "!localLfs" to LocalLfsConfig::class.java,
             "!sshKeys" to KeysConfig::class.java,
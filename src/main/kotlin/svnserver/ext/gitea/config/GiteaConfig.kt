@@ -16,6 +16,7 @@ import svnserver.context.SharedContext
 import svnserver.ext.gitlfs.storage.BasicAuthHttpLfsStorage
 import svnserver.ext.gitlfs.storage.LfsStorage
 import svnserver.ext.gitlfs.storage.LfsStorageFactory
+import svnserver.ext.gitlfs.storage.network.LfsHttpCache
 import java.net.URI
 
 /**
@@ -37,7 +38,7 @@ class GiteaConfig private constructor(var url: String, private var token: String
         if (lfs) {
             context.add(LfsStorageFactory::class.java, object : LfsStorageFactory {
                 override fun createStorage(context: LocalContext): LfsStorage {
-                    return createLfsStorage(url, context.name, getToken())
+                    return createLfsStorage(url, context.name, getToken(), context.shared[LfsHttpCache::class.java])
                 }
             })
         }
@@ -48,8 +49,8 @@ class GiteaConfig private constructor(var url: String, private var token: String
     }
 
     companion object {
-        fun createLfsStorage(giteaUrl: String, repositoryName: String, token: GiteaToken): LfsStorage {
-            return object : BasicAuthHttpLfsStorage(giteaUrl, repositoryName, token.value, "x-oauth-basic") {
+        fun createLfsStorage(giteaUrl: String, repositoryName: String, token: GiteaToken, cache: LfsHttpCache? = null): LfsStorage {
+            return object : BasicAuthHttpLfsStorage(giteaUrl, repositoryName, token.value, "x-oauth-basic", cache) {
                 override fun authProvider(user: User, baseURI: URI): AuthProvider {
                     val lfsCredentials = user.lfsCredentials ?: return super.authProvider(user, baseURI)
                     return BasicAuthProvider(baseURI, lfsCredentials.username, lfsCredentials.password)
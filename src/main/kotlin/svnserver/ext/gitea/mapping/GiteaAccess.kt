@@ -32,6 +32,11 @@ import java.util.concurrent.TimeUnit
 internal class GiteaAccess(local: LocalContext, config: GiteaMappingConfig, private val repository: Repository) : VcsAccess {
     private val cache: LoadingCache<String, Repository>
 
+    override fun isUniformSubtree(branch: String, path: String): Boolean {
+        // Access is granted per project.
+        return true
+    }
+
     @Throws(IOException::class)
     override fun canRead(user: User, branch: String, path: String): Boolean {
         return try {
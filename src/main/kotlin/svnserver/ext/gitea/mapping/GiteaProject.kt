@@ -13,6 +13,7 @@ import svnserver.context.LocalContext
 import svnserver.repository.git.BranchProvider
 import svnserver.repository.git.GitBranch
 import svnserver.repository.git.GitRepository
+import svnserver.repository.git.ObjectReaders
 import java.io.IOException
 import java.util.*
 
@@ -32,7 +33,12 @@ class GiteaProject internal constructor(val context: LocalContext, val repositor
     fun initRevisions() {
         if (!isReady) {
             log.info("[{}]: initing...", context.name)
-            for (branch in repository.branches.values) branch!!.updateRevisions()
+            try {
+                for (branch in repository.branches.values) branch!!.updateRevisions()
+            } finally {
+                // Called from startup and mapper threads: they must not keep readers of this repository.
+                ObjectReaders.release()
+            }
             isReady = true
         }
     }
@@ -18,6 +18,7 @@ import svnserver.ext.gitlfs.storage.BasicAuthHttpLfsStorage
 import svnserver.ext.gitlfs.storage.LfsReader
 import svnserver.ext.gitlfs.storage.LfsStorage
 import svnserver.ext.gitlfs.storage.LfsStorageFactory
+import svnserver.ext.gitlfs.storage.network.LfsHttpCache
 import java.io.IOException
 import java.net.URI
 
@@ -46,7 +47,8 @@ class GitLabConfig private constructor(var url: String, private var tokenType: T
                         url,
                         context.name,
                         "UNUSED", getToken().value,
-                        lfsMode!!.readerFactory(context)
+                        lfsMode!!.readerFactory(context),
+                        context.shared[LfsHttpCache::class.java]
                     )
                 }
             })
@@ -63,9 +65,10 @@ class GitLabConfig private constructor(var url: String, private var tokenType: T
             repositoryName: String,
             username: String,
             password: String,
-            readerFactory: LfsReaderFactory?
+            readerFactory: LfsReaderFactory?,
+            cache: LfsHttpCache? = null
         ): LfsStorage {
-            return object : BasicAuthHttpLfsStorage(gitLabUrl, repositoryName, username, password) {
+            return object : BasicAuthHttpLfsStorage(gitLabUrl, repositoryName, username, password, cache) {
                 @Throws(IOException::class)
                 override fun getReader(oid: String, size: Long): LfsReader? {
                     return if (readerFactory != null) readerFactory.createReader(oid) else super.getReader(oid, size)
@@ -36,6 +36,11 @@ import java.util.concurrent.TimeUnit
 internal class GitLabAccess(local: LocalContext, config: GitLabMappingConfig, private val gitlabProject: GitlabProject, private val relativeRepoPath: Path, private val gitlabContext: GitLabContext) : VcsAccess {
     private val cache: LoadingCache<String, GitlabProject>
 
+    override fun isUniformSubtree(branch: String, path: String): Boolean {
+        // Access is granted per project.
+        return true
+    }
+
     @Throws(IOException::class)
     override fun canRead(user: User, branch: String, path: String): Boolean {
         return try {
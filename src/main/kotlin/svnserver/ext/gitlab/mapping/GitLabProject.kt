@@ -13,6 +13,7 @@ import svnserver.context.LocalContext
 import svnserver.repository.git.BranchProvider
 import svnserver.repository.git.GitBranch
 import svnserver.repository.git.GitRepository
+import svnserver.repository.git.ObjectReaders
 import java.io.IOException
 import java.util.*
 
@@ -30,7 +31,12 @@ class GitLabProject internal constructor(val context: LocalContext, val reposito
     fun initRevisions() {
         if (!ready) {
             log.info("[{}]: initing...", context.name)
-            for (branch in repository.branches.values) branch!!.updateRevisions()
+            try {
+                for (branch in repository.branches.values) branch!!.updateRevisions()
+            } finally {
+                // Called from startup and web hook threads: they must not keep readers of this repository.
+                ObjectReaders.release()
+            }
             ready = true
         }
     }
@@ -22,6 +22,7 @@ import svnserver.ext.gitlfs.storage.LfsWriter
 import svnserver.repository.SvnForbiddenException
 import svnserver.repository.git.GitObject
 import svnserver.repository.git.filter.GitFilter
+import svnserver.repository.git.filter.GitFilterCache
 import svnserver.repository.git.filter.GitFilterHelper
 import java.io.IOException
 import java.io.InputStream
@@ -34,7 +35,7 @@ import java.io.OutputStream
  * @author Marat Radchenko <marat@slonopotamus.org>
  */
 class LfsFilter(context: LocalContext, private val storage: LfsStorage?) : GitFilter {
-    private val cacheMd5: MutableMap<String, String>
+    private val cache: GitFilterCache.Filter
     override val name: String
         get() = "lfs"
 
@@ -48,7 +49,7 @@ class LfsFilter(context: LocalContext, private val storage: LfsStorage?) : GitFi
                 if (md5 != null) return md5
             }
         }
-        return GitFilterHelper.getMd5(this, cacheMd5, null, objectId)
+        return GitFilterHelper.getMd5(this, cache, objectId)
     }
 
     @Throws(IOException::class)
@@ -77,6 +78,17 @@ class LfsFilter(context: LocalContext, private val storage: LfsStorage?) : GitFi
         }
     }
 
+    @Throws(IOException::class)
+    override fun prefetch(objectIds: Collection<GitObject<out ObjectId>>) {
+        if (storage == null) return
+        val metas = ArrayList<Meta>()
+        for (objectId in objectIds) {
+            val meta = objectId.openObject().openStream().use { stream -> parseMeta(stream) }
+            if (meta != null) metas.add(meta)
+        }
+        if (metas.isNotEmpty()) storage.prefetch(metas)
+    }
+
     @Throws(IOException::class)
     override fun outputStream(stream: OutputStream, user: User): OutputStream {
         return TemporaryOutputStream(getStorage().getWriter(user), stream)
@@ -139,7 +151,7 @@ class LfsFilter(context: LocalContext, private val storage: LfsStorage?) : GitFi
     }
 
     init {
-        cacheMd5 = GitFilterHelper.getCacheMd5(this, context.shared.cacheDB)
+        cache = GitFilterHelper.getCache(this, context.shared)
         val lfsServer = context.shared[LfsServer::class.java]
         if (storage != null && lfsServer != null) {
             context.add(LfsServerEntry::class.java, LfsServerEntry(lfsServer, context, storage))
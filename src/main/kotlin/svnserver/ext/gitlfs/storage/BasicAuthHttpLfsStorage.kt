@@ -14,6 +14,7 @@ import ru.bozaro.gitlfs.client.auth.AuthProvider
 import ru.bozaro.gitlfs.client.auth.BasicAuthProvider
 import svnserver.auth.User
 import svnserver.ext.gitlfs.server.LfsServer
+import svnserver.ext.gitlfs.storage.network.LfsHttpCache
 import svnserver.ext.gitlfs.storage.network.LfsHttpStorage
 import java.net.URI
 
@@ -22,7 +23,13 @@ import java.net.URI
  *
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
-open class BasicAuthHttpLfsStorage(baseUrl: String, repositoryName: String, username: String, password: String) : LfsHttpStorage() {
+open class BasicAuthHttpLfsStorage @JvmOverloads constructor(
+    baseUrl: String,
+    repositoryName: String,
+    username: String,
+    password: String,
+    cache: LfsHttpCache? = null
+) : LfsHttpStorage(cache) {
     private val httpClient: CloseableHttpClient = createHttpClient()
     private val baseURI: URI = buildAuthURI(baseUrl, repositoryName)
     private val fallbackAuthProvider: BasicAuthProvider = BasicAuthProvider(baseURI, username, password)
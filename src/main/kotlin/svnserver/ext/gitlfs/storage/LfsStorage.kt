@@ -7,6 +7,7 @@
  */
 package svnserver.ext.gitlfs.storage
 
+import ru.bozaro.gitlfs.common.data.Meta
 import svnserver.auth.User
 import svnserver.context.Local
 import svnserver.repository.locks.LockStorage
@@ -28,6 +29,15 @@ interface LfsStorage : Local, LockStorage {
     @Throws(IOException::class)
     fun getReader(oid: String, size: Long): LfsReader?
 
+    /**
+     * Hint that readers for given objects will be requested soon.
+     *
+     * @param metas Object hashes and sizes.
+     */
+    @Throws(IOException::class)
+    fun prefetch(metas: Collection<Meta>) {
+    }
+
     /**
      * Create writer for object.
      *
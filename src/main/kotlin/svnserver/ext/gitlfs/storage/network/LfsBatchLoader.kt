@@ -0,0 +1,150 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.ext.gitlfs.storage.network
+
+import ru.bozaro.gitlfs.client.Client
+import ru.bozaro.gitlfs.common.data.BatchItem
+import ru.bozaro.gitlfs.common.data.BatchReq
+import ru.bozaro.gitlfs.common.data.Meta
+import ru.bozaro.gitlfs.common.data.Operation
+import svnserver.ext.gitlfs.storage.LfsStorage
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.util.*
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Coalesces concurrent download lookups into multi-object batch requests.
+ *
+ * While one batch request is in flight, new lookups are queued and the next request carries all of them.
+ * Single lookup is sent immediately, so sequential callers don't get any extra latency.
+ * Objects known in advance can be resolved with [lookupAll] without waiting for concurrent callers.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class LfsBatchLoader(private val clientSupplier: () -> Client) {
+    private val lock = ReentrantLock()
+    private val changed = lock.newCondition()
+    private val pending = ArrayList<Request>()
+    private var inFlight = false
+
+    @Throws(IOException::class)
+    fun lookup(meta: Meta): BatchItem? {
+        val request = Request(meta)
+        lock.withLock {
+            pending.add(request)
+            try {
+                while (inFlight && !request.done) changed.await()
+            } catch (e: InterruptedException) {
+                pending.remove(request)
+                throw InterruptedIOException()
+            }
+            if (request.done) return request.get()
+            inFlight = true
+        }
+        try {
+            while (!request.done) {
+                execute(takeBatch())
+            }
+        } finally {
+            lock.withLock {
+                inFlight = false
+                changed.signalAll()
+            }
+        }
+        return request.get()
+    }
+
+    /**
+     * Resolve objects with as few batch requests as possible.
+     *
+     * @return Found objects by hash.
+     */
+    @Throws(IOException::class)
+    fun lookupAll(metas: Collection<Meta>): Map<String, BatchItem> {
+        val result = HashMap<String, BatchItem>()
+        for (chunk in metas.distinctBy { meta -> hashOf(meta.oid) }.chunked(MAX_BATCH_SIZE)) {
+            try {
+                val res = clientSupplier().postBatch(BatchReq(Operation.Download, chunk))
+                for (item in res.objects) {
+                    result[hashOf(item.oid)] = item
+                }
+            } catch (e: RuntimeException) {
+                throw IOException(e)
+            }
+        }
+        return result
+    }
+
+    private fun takeBatch(): List<Request> {
+        lock.withLock {
+            val count: Int = Math.min(pending.size, MAX_BATCH_SIZE)
+            val batch = ArrayList(pending.subList(0, count))
+            pending.subList(0, count).clear()
+            return batch
+        }
+    }
+
+    private fun execute(batch: List<Request>) {
+        try {
+            val requests = LinkedHashMap<String, MutableList<Request>>()
+            for (request in batch) {
+                requests.computeIfAbsent(request.meta.oid) { ArrayList() }.add(request)
+            }
+            val metas = ArrayList<Meta>()
+            for (list in requests.values) {
+                metas.add(list[0].meta)
+            }
+            val res = clientSupplier().postBatch(BatchReq(Operation.Download, metas))
+            for (item in res.objects) {
+                for (request in requests.remove(hashOf(item.oid)) ?: continue) {
+                    request.complete(item, null)
+                }
+            }
+            // Objects missing in response.
+            for (list in requests.values) {
+                for (request in list) request.complete(null, null)
+            }
+        } catch (e: IOException) {
+            for (request in batch) request.complete(null, e)
+        } catch (e: RuntimeException) {
+            for (request in batch) request.complete(null, IOException(e))
+        }
+        lock.withLock { changed.signalAll() }
+    }
+
+    private class Request(val meta: Meta) {
+        @Volatile
+        var done: Boolean = false
+            private set
+        private var item: BatchItem? = null
+        private var error: IOException? = null
+
+        fun complete(item: BatchItem?, error: IOException?) {
+            this.item = item
+            this.error = error
+            done = true
+        }
+
+        @Throws(IOException::class)
+        fun get(): BatchItem? {
+            val e: IOException? = error
+            if (e != null) throw e
+            return item
+        }
+    }
+
+    companion object {
+        private const val MAX_BATCH_SIZE = 100
+
+        private fun hashOf(oid: String): String {
+            return if (oid.startsWith(LfsStorage.OID_PREFIX)) oid.substring(LfsStorage.OID_PREFIX.length) else oid
+        }
+    }
+}
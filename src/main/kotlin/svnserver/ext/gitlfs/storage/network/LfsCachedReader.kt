@@ -0,0 +1,45 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.ext.gitlfs.storage.network
+
+import svnserver.ext.gitlfs.storage.LfsReader
+import svnserver.ext.gitlfs.storage.LfsStorage
+import svnserver.repository.VcsSupplier
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Reader for remote LFS object from local cache.
+ *
+ * If object was evicted from cache after reader creation, it is read through remote reader.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class LfsCachedReader(
+    private val cache: LfsHttpCache,
+    private val hash: String,
+    override val size: Long,
+    private val remote: VcsSupplier<LfsReader?>
+) : LfsReader {
+    @Throws(IOException::class)
+    override fun openStream(): InputStream {
+        return cache.openStream(hash) ?: remote.get()?.openStream() ?: throw FileNotFoundException(hash)
+    }
+
+    override fun openGzipStream(): InputStream? {
+        return null
+    }
+
+    override val md5: String?
+        get() = null
+
+    override fun getOid(hashOnly: Boolean): String {
+        return if (hashOnly) hash else LfsStorage.OID_PREFIX + hash
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.ext.gitlfs.storage.network
+
+import org.apache.commons.codec.binary.Hex
+import svnserver.Loggers
+import svnserver.context.Shared
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.file.*
+import java.nio.file.attribute.FileTime
+import java.security.DigestOutputStream
+import java.security.MessageDigest
+import java.util.*
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Local content-addressed cache for objects downloaded from remote LFS server.
+ *
+ * Objects are stored by SHA-256 hash and evicted in least recently used order when cache exceeds size limit.
+ * Access order survives restart through file modification time.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class LfsHttpCache(private val root: Path, private val maxSize: Long) : Shared {
+    private val entries = LinkedHashMap<String, Long>(16, 0.75f, true)
+    private var totalSize: Long = 0
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    val hitCount: Long
+        get() {
+            return hits.get()
+        }
+    val missCount: Long
+        get() {
+            return misses.get()
+        }
+
+    /**
+     * Open cached object.
+     *
+     * @return Object stream or null if object is not cached.
+     */
+    @Throws(IOException::class)
+    fun openStream(hash: String): InputStream? {
+        val path: Path = getPath(hash)
+        synchronized(entries) {
+            if (entries[hash] == null) {
+                misses.incrementAndGet()
+                return null
+            }
+        }
+        return try {
+            val stream: InputStream = Files.newInputStream(path)
+            hits.incrementAndGet()
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()))
+            stream
+        } catch (e: NoSuchFileException) {
+            synchronized(entries) { entries.remove(hash)?.let { totalSize -= it } }
+            misses.incrementAndGet()
+            null
+        }
+    }
+
+    /**
+     * Size of cached object.
+     *
+     * @return Object size or null if object is not cached.
+     */
+    fun getSize(hash: String): Long? {
+        synchronized(entries) {
+            return entries[hash]
+        }
+    }
+
+    /**
+     * Download object to cache and open it.
+     */
+    @Throws(IOException::class)
+    fun download(hash: String, downloader: Downloader): InputStream {
+        Files.createDirectories(root)
+        val tempFile: Path = Files.createTempFile(root, "download-", TEMP_SUFFIX)
+        try {
+            val digest: MessageDigest = MessageDigest.getInstance("SHA-256")
+            DigestOutputStream(Files.newOutputStream(tempFile), digest).use { stream -> downloader.download(stream) }
+            val actual: String = Hex.encodeHexString(digest.digest())
+            if (actual != hash) {
+                throw IOException("LFS object hash mismatch: expected $hash, but got $actual")
+            }
+            val path: Path = getPath(hash)
+            Files.createDirectories(path.parent)
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            val stream: InputStream = Files.newInputStream(path)
+            register(hash, Files.size(path))
+            return stream
+        } finally {
+            Files.deleteIfExists(tempFile)
+        }
+    }
+
+    private fun register(hash: String, size: Long) {
+        val evicted = ArrayList<String>()
+        synchronized(entries) {
+            entries.put(hash, size)?.let { totalSize -= it }
+            totalSize += size
+            val iter = entries.entries.iterator()
+            while (totalSize > maxSize && iter.hasNext()) {
+                val entry = iter.next()
+                if (entry.key == hash) continue
+                totalSize -= entry.value
+                evicted.add(entry.key)
+                iter.remove()
+            }
+        }
+        for (item in evicted) {
+            try {
+                Files.deleteIfExists(getPath(item))
+            } catch (e: IOException) {
+                log.warn("Can't remove cached LFS object: {}", item, e)
+            }
+        }
+    }
+
+    private fun getPath(hash: String): Path {
+        return root.resolve(hash.substring(0, 2)).resolve(hash)
+    }
+
+    override fun toString(): String {
+        synchronized(entries) {
+            return "LfsHttpCache{hits=$hitCount, misses=$missCount, objects=${entries.size}, size=$totalSize}"
+        }
+    }
+
+    fun interface Downloader {
+        @Throws(IOException::class)
+        fun download(stream: OutputStream)
+    }
+
+    companion object {
+        private val log = Loggers.lfs
+        private const val TEMP_SUFFIX = ".tmp"
+        private val hashPattern = Regex("[0-9a-f]{64}")
+    }
+
+    init {
+        if (Files.isDirectory(root)) {
+            class Item(val hash: String, val size: Long, val time: Long)
+
+            val items = ArrayList<Item>()
+            Files.walk(root, 2).use { stream ->
+                for (file in stream.iterator()) {
+                    if (!Files.isRegularFile(file)) continue
+                    val name: String = file.fileName.toString()
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        Files.deleteIfExists(file)
+                    } else if (hashPattern.matches(name) && file.parent.fileName.toString() == name.substring(0, 2)) {
+                        items.add(Item(name, Files.size(file), Files.getLastModifiedTime(file).toMillis()))
+                    }
+                }
+            }
+            items.sortBy { it.time }
+            for (item in items) {
+                entries[item.hash] = item.size
+                totalSize += item.size
+            }
+        }
+    }
+}
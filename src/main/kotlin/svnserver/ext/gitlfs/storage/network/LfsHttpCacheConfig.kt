@@ -0,0 +1,23 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.ext.gitlfs.storage.network
+
+import svnserver.config.ConfigHelper
+import svnserver.config.SharedConfig
+import svnserver.context.SharedContext
+
+/**
+ * Local cache for remote LFS objects.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class LfsHttpCacheConfig @JvmOverloads constructor(private var path: String = "lfs-cache", private var maxSizeMb: Long = 10240) : SharedConfig {
+    override fun create(context: SharedContext) {
+        context.add(LfsHttpCache::class.java, LfsHttpCache(ConfigHelper.joinPath(context.basePath, path), maxSizeMb * 1024 * 1024))
+    }
+}
@@ -20,10 +20,12 @@ import java.io.InputStream
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  * @author Marat Radchenko <marat@slonopotamus.org>
  */
-internal class LfsHttpReader(private val lfsClient: Client, private val item: BatchItem) : LfsReader {
+internal class LfsHttpReader(private val lfsClient: Client, private val item: BatchItem, private val cache: LfsHttpCache?) : LfsReader {
     @Throws(IOException::class)
     override fun openStream(): InputStream {
-        return lfsClient.openObject(item, item)
+        if (cache == null) return lfsClient.openObject(item, item)
+        val hash: String = getOid(true)
+        return cache.openStream(hash) ?: cache.download(hash) { stream -> lfsClient.openObject(item, item).use { it.copyTo(stream) } }
     }
 
     override fun openGzipStream(): InputStream? {
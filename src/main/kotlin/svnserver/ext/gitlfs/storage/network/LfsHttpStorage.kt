@@ -7,6 +7,8 @@
  */
 package svnserver.ext.gitlfs.storage.network
 
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
 import org.apache.http.client.config.CookieSpecs
 import org.apache.http.client.config.RequestConfig
 import org.apache.http.impl.client.CloseableHttpClient
@@ -30,6 +32,7 @@ import svnserver.repository.locks.LockTarget
 import svnserver.repository.locks.UnlockTarget
 import java.io.IOException
 import java.util.*
+import java.util.concurrent.TimeUnit
 
 /**
  * HTTP remote storage for LFS files.
@@ -37,23 +40,57 @@ import java.util.*
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  * @author Marat Radchenko <marat@slonopotamus.org>
  */
-abstract class LfsHttpStorage : LfsStorage {
+abstract class LfsHttpStorage @JvmOverloads constructor(private val cache: LfsHttpCache? = null) : LfsStorage {
+    private val batchLoader = LfsBatchLoader { lfsClient(User.anonymous) }
+
+    /**
+     * Objects resolved by [prefetch]. Download links expire, so entries are kept only for a short time.
+     */
+    private val prefetched: Cache<String, BatchItem> = CacheBuilder.newBuilder()
+        .maximumSize(PREFETCH_MAX_ITEMS)
+        .expireAfterWrite(PREFETCH_TTL_SECONDS, TimeUnit.SECONDS)
+        .build()
+
     @Throws(IOException::class)
     override fun getReader(oid: String, size: Long): LfsReader? {
         return try {
             if (!oid.startsWith(LfsStorage.OID_PREFIX)) return null
             val hash: String = oid.substring(LfsStorage.OID_PREFIX.length)
-            val lfsClient = lfsClient(User.anonymous)
-            val res = lfsClient.postBatch(BatchReq(Operation.Download, listOf(Meta(hash, size))))
-            if (res.objects.isEmpty()) return null
-            val item = res.objects[0]
-            if (item.error != null) null else LfsHttpReader(lfsClient, item)
+            if (cache != null) {
+                val cachedSize: Long? = cache.getSize(hash)
+                // Cached object can be evicted before it is opened, so reader falls back to remote server.
+                if (cachedSize != null) return LfsCachedReader(cache, hash, cachedSize) { getRemoteReader(hash, cachedSize) }
+            }
+            getRemoteReader(hash, size)
         } catch (e: RequestException) {
             log.error("HTTP request error:" + e.message, e)
             throw e
         }
     }
 
+    override fun prefetch(metas: Collection<Meta>) {
+        val missing = ArrayList<Meta>()
+        for (meta in metas) {
+            if (!meta.oid.startsWith(LfsStorage.OID_PREFIX)) continue
+            val hash: String = meta.oid.substring(LfsStorage.OID_PREFIX.length)
+            if (cache?.getSize(hash) != null || prefetched.getIfPresent(hash) != null) continue
+            missing.add(Meta(hash, meta.size))
+        }
+        if (missing.isEmpty()) return
+        try {
+            prefetched.putAll(batchLoader.lookupAll(missing))
+        } catch (e: IOException) {
+            // Only a hint: objects will be requested one by one and errors reported there.
+            log.warn("LFS batch prefetch failed: {}", e.message)
+        }
+    }
+
+    @Throws(IOException::class)
+    private fun getRemoteReader(hash: String, size: Long): LfsReader? {
+        val item = prefetched.getIfPresent(hash) ?: batchLoader.lookup(Meta(hash, size)) ?: return null
+        return if (item.error != null) null else LfsHttpReader(lfsClient(User.anonymous), item, cache)
+    }
+
     protected abstract fun lfsClient(user: User): Client
     override fun getWriter(user: User): LfsWriter {
         val lfsClient = lfsClient(user)
@@ -167,6 +204,8 @@ abstract class LfsHttpStorage : LfsStorage {
 
     companion object {
         private val log = Loggers.lfs
+        private const val PREFETCH_MAX_ITEMS = 10000L
+        private const val PREFETCH_TTL_SECONDS = 60L
         fun createHttpClient(): CloseableHttpClient {
             // HttpClient has strange default cookie spec that produces warnings when talking to Gitea
             // See https://issues.apache.org/jira/browse/HTTPCLIENT-1763
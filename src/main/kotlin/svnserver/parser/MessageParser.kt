@@ -10,9 +10,13 @@ package svnserver.parser
 import svnserver.parser.MessageParser.Parser
 import svnserver.parser.token.*
 import java.io.IOException
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
 import java.lang.reflect.Constructor
-import java.lang.reflect.Parameter
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.math.max
 
 /**
  * Parse data from class.
@@ -23,51 +27,127 @@ object MessageParser {
 
     private val emptyBytes: ByteArray = byteArrayOf()
     private val emptyInts: IntArray = intArrayOf()
-    private val parsers: MutableMap<Class<*>?, Parser>
+    private val parsers: MutableMap<Class<*>, Parser> = ConcurrentHashMap()
+    private val building: ThreadLocal<MutableMap<Class<*>, ForwardParser>> = ThreadLocal.withInitial { HashMap() }
 
     @Throws(IOException::class)
     fun <T> parse(type: Class<T>, tokenParser: SvnServerParser?): T {
-        val typeParser: Parser? = parsers[type]
-        if (typeParser != null) {
-            return typeParser.parse(tokenParser) as T
+        return getParser(type).parse(tokenParser) as T
+    }
+
+    /**
+     * Build parse plan for class ahead of first message.
+     */
+    fun prepare(type: Class<*>) {
+        getParser(type)
+    }
+
+    private fun getParser(type: Class<*>): Parser {
+        val cached: Parser? = parsers[type]
+        if (cached != null) {
+            return cached
+        }
+        // Plan is created outside of map lock: it recursively requests parsers for nested types.
+        // Self-referential type gets forward reference to plan that is being built.
+        val inProgress: MutableMap<Class<*>, ForwardParser> = building.get()
+        val forward: ForwardParser? = inProgress[type]
+        if (forward != null) {
+            return forward
+        }
+        val reference = ForwardParser()
+        inProgress[type] = reference
+        try {
+            val parser: Parser = if (type.isArray) ArrayParser(type.componentType) else ObjectParser(type)
+            reference.target = parser
+            return parsers.putIfAbsent(type, parser) ?: parser
+        } finally {
+            inProgress.remove(type)
         }
-        return parseObject(type, tokenParser)
     }
 
-    @Throws(IOException::class)
-    private fun <T> parseObject(type: Class<T>, tokenParser: SvnServerParser?): T {
-        var tokenParser: SvnServerParser? = tokenParser
-        if (tokenParser != null && tokenParser.readItem(ListBeginToken::class.java) == null) tokenParser = null
-        val depth: Int = getDepth(tokenParser)
-        if (type.isArray) {
-            val result = ArrayList<Any>()
-            if (tokenParser != null) {
+    private fun getDepth(tokenParser: SvnServerParser?): Int {
+        return tokenParser?.depth ?: -1
+    }
+
+    /**
+     * Reference to parse plan that is not built yet.
+     */
+    private class ForwardParser : Parser {
+        @Volatile
+        var target: Parser? = null
+
+        @Throws(IOException::class)
+        override fun parse(tokenParser: SvnServerParser?): Any? {
+            return target!!.parse(tokenParser)
+        }
+    }
+
+    /**
+     * Parse plan for array: list of items with the same type.
+     */
+    private class ArrayParser(private val componentType: Class<*>) : Parser {
+        private val componentParser: Parser = getParser(componentType)
+
+        @Throws(IOException::class)
+        override fun parse(tokenParser: SvnServerParser?): Any {
+            var parser: SvnServerParser? = tokenParser
+            if (parser != null && parser.readItem(ListBeginToken::class.java) == null) parser = null
+            val depth: Int = getDepth(parser)
+            val result = ArrayList<Any?>()
+            if (parser != null) {
                 while (true) {
-                    val element: Any = parse(type.componentType, tokenParser)
-                    if (getDepth(tokenParser) < depth) break
+                    val element: Any? = componentParser.parse(parser)
+                    if (getDepth(parser) < depth) break
                     result.add(element)
                 }
             }
-            return result.toArray(java.lang.reflect.Array.newInstance(type.componentType, result.size) as Array<*>) as T
+            val array: Array<Any?> = java.lang.reflect.Array.newInstance(componentType, result.size) as Array<Any?>
+            return result.toArray(array)
         }
-        val ctors: Array<Constructor<*>> = type.declaredConstructors
-        if (ctors.size != 1) {
-            throw IllegalStateException("Can't find parser ctor for object: " + type.name)
-        }
-        val ctor: Constructor<*> = ctors[0]
-        val ctorParams: Array<Parameter> = ctor.parameters
-        val params: Array<Any?> = arrayOfNulls(ctorParams.size)
-        for (i in params.indices) {
-            params[i] = parse(ctorParams[i].type, if (getDepth(tokenParser) == depth) tokenParser else null)
-        }
-        while (tokenParser != null && getDepth(tokenParser) >= depth) {
-            tokenParser.readToken()
+    }
+
+    /**
+     * Parse plan for object: list items are passed to the only constructor in declaration order.
+     */
+    private class ObjectParser(type: Class<*>) : Parser {
+        private val paramParsers: Array<Parser>
+        private val ctor: MethodHandle
+
+        init {
+            val ctors: Array<Constructor<*>> = type.declaredConstructors
+            if (ctors.size != 1) {
+                throw IllegalStateException("Can't find parser ctor for object: " + type.name)
+            }
+            val constructor: Constructor<*> = ctors[0]
+            if (!constructor.isAccessible) constructor.isAccessible = true
+            val paramTypes: Array<Class<*>> = constructor.parameterTypes
+            paramParsers = Array(paramTypes.size) { i -> getParser(paramTypes[i]) }
+            ctor = MethodHandles.lookup().unreflectConstructor(constructor)
+                .asType(MethodType.genericMethodType(paramTypes.size))
+                .asSpreader(Array<Any?>::class.java, paramTypes.size)
         }
-        try {
-            if (!ctor.isAccessible) ctor.isAccessible = true
-            return ctor.newInstance(*params) as T
-        } catch (e: ReflectiveOperationException) {
-            throw IllegalStateException(e)
+
+        @Throws(IOException::class)
+        override fun parse(tokenParser: SvnServerParser?): Any? {
+            var parser: SvnServerParser? = tokenParser
+            if (parser != null && parser.readItem(ListBeginToken::class.java) == null) parser = null
+            val depth: Int = getDepth(parser)
+            val params: Array<Any?> = arrayOfNulls(paramParsers.size)
+            for (i in params.indices) {
+                params[i] = paramParsers[i].parse(if (getDepth(parser) == depth) parser else null)
+            }
+            while (parser != null && getDepth(parser) >= depth) {
+                parser.readToken()
+            }
+            try {
+                return ctor.invoke(params)
+            } catch (e: RuntimeException) {
+                throw e
+            } catch (e: Error) {
+                throw e
+            } catch (e: Throwable) {
+                throw IllegalStateException(e)
+            }
         }
     }
 
@@ -113,35 +193,30 @@ object MessageParser {
             return emptyInts
         }
         if (tokenParser.readItem((ListBeginToken::class.java)) != null) {
-            val result = ArrayList<Int>()
+            var result: IntArray = emptyInts
+            var size = 0
             while (true) {
                 val token: NumberToken = tokenParser.readItem(NumberToken::class.java) ?: break
-                result.add(token.number)
-            }
-            val array = IntArray(result.size)
-            for (i in array.indices) {
-                array[i] = result[i]
+                if (size == result.size) {
+                    result = result.copyOf(max(4, size * 2))
+                }
+                result[size++] = token.number
             }
-            return array
+            return if (size == result.size) result else result.copyOf(size)
         }
         return emptyInts
     }
 
-    private fun getDepth(tokenParser: SvnServerParser?): Int {
-        return tokenParser?.depth ?: -1
-    }
-
     private fun interface Parser {
         @Throws(IOException::class)
         fun parse(tokenParser: SvnServerParser?): Any?
     }
 
     init {
-        parsers = HashMap()
         parsers[String::class.java] = Parser { obj: SvnServerParser? -> parseString(obj) }
         parsers[ByteArray::class.java] = Parser { obj: SvnServerParser? -> parseBinary(obj) }
-        parsers[Int::class.javaPrimitiveType] = Parser { obj: SvnServerParser? -> parseInt(obj) }
+        parsers[Int::class.javaPrimitiveType!!] = Parser { obj: SvnServerParser? -> parseInt(obj) }
         parsers[IntArray::class.java] = Parser { obj: SvnServerParser? -> parseInts(obj) }
-        parsers[Boolean::class.javaPrimitiveType] = Parser { obj: SvnServerParser? -> parseBool(obj) }
+        parsers[Boolean::class.javaPrimitiveType!!] = Parser { obj: SvnServerParser? -> parseBool(obj) }
     }
 }
@@ -11,8 +11,8 @@ import svnserver.parser.token.*
 import java.io.EOFException
 import java.io.IOException
 import java.io.InputStream
-import java.nio.charset.StandardCharsets
 import kotlin.math.max
+import kotlin.math.min
 
 /**
  * Интерфейс для чтения токенов из потока.
@@ -106,17 +106,26 @@ class SvnServerParser constructor(private val stream: InputStream, bufferSize: I
 
     @Throws(IOException::class)
     private fun readNumberToken(first: Byte): SvnServerToken {
+        val result: Int = readNumberValue(first)
+        if (buffer[offset - 1] == ':'.toByte()) {
+            return readString(result)
+        }
+        return NumberToken(result)
+    }
+
+    /**
+     * Read number digits. Delimiter (' ', '\n' or ':') is consumed and left at `buffer[offset - 1]`.
+     */
+    @Throws(IOException::class)
+    private fun readNumberValue(first: Byte): Int {
         var result: Int = first - '0'.toByte()
         while (true) {
             while (offset < limit) {
                 val data: Byte = buffer[offset]
                 offset++
                 if ((data < '0'.toByte()) || (data > '9'.toByte())) {
-                    if (data == ':'.toByte()) {
-                        return readString(result)
-                    }
-                    if (isSpace(data.toInt())) {
-                        return NumberToken(result)
+                    if (data == ':'.toByte() || isSpace(data.toInt())) {
+                        return result
                     }
                     throw IOException("Unexpected character in stream: $data (need ' ', '\\n' or ':')")
                 }
@@ -130,6 +139,43 @@ class SvnServerParser constructor(private val stream: InputStream, bufferSize: I
         }
     }
 
+    /**
+     * Read string token without materializing it.
+     *
+     * Data is passed to consumer as slices of parser buffer: they are valid only during consumer call.
+     * Long strings are passed by several chunks, so there is no string size limit.
+     *
+     * @param consumer String data consumer.
+     * @return String length.
+     */
+    @Throws(IOException::class)
+    fun readBinary(consumer: BinaryConsumer): Int {
+        val read: Byte = skipSpaces()
+        if (!isDigit(read.toInt())) {
+            throw IOException("Unexpected character in stream: $read (expected string)")
+        }
+        val length: Int = readNumberValue(read)
+        if (buffer[offset - 1] != ':'.toByte()) {
+            throw IOException("Unexpected token: " + NumberToken(length) + " (expected: " + StringToken::class.java.name + ')')
+        }
+        var remaining: Int = length
+        while (remaining > 0) {
+            if (offset >= limit) {
+                if (limit < 0) {
+                    throw EOFException()
+                }
+                offset = 0
+                limit = stream.read(buffer)
+                continue
+            }
+            val size: Int = min(remaining, limit - offset)
+            consumer.accept(buffer, offset, size)
+            offset += size
+            remaining -= size
+        }
+        return length
+    }
+
     @Throws(IOException::class)
     private fun skipSpaces(): Byte {
         while (true) {
@@ -174,7 +220,7 @@ class SvnServerParser constructor(private val stream: InputStream, bufferSize: I
                 position += size
             }
         }
-        return StringToken(token.copyOf(length))
+        return StringToken(token)
     }
 
     @Throws(IOException::class)
@@ -184,7 +230,7 @@ class SvnServerParser constructor(private val stream: InputStream, bufferSize: I
             val data: Byte = buffer[offset]
             offset++
             if (isSpace(data.toInt())) {
-                return WordToken(String(buffer, begin, offset - begin - 1, StandardCharsets.US_ASCII))
+                return WordToken.intern(buffer, begin, offset - begin - 1)
             }
             if (!(isAlpha(data.toInt()) || isDigit(data.toInt()) || (data == '-'.toByte()))) {
                 throw IOException("Unexpected character in stream: $data (need 'a'..'z', 'A'..'Z', '0'..'9' or '-')")
@@ -203,7 +249,7 @@ class SvnServerParser constructor(private val stream: InputStream, bufferSize: I
                 val data: Byte = buffer[offset]
                 offset++
                 if (isSpace(data.toInt())) {
-                    return WordToken(String(buffer, 0, offset - 1, StandardCharsets.US_ASCII))
+                    return WordToken.intern(buffer, 0, offset - 1)
                 }
                 if (!(isAlpha(data.toInt()) || isDigit(data.toInt()) || (data == '-'.toByte()))) {
                     throw IOException("Unexpected character in stream: $data (need 'a'..'z', 'A'..'Z', '0'..'9' or '-')")
@@ -227,6 +273,11 @@ class SvnServerParser constructor(private val stream: InputStream, bufferSize: I
         }
     }
 
+    fun interface BinaryConsumer {
+        @Throws(IOException::class)
+        fun accept(data: ByteArray, offset: Int, length: Int)
+    }
+
     companion object {
         private const val DEFAULT_BUFFER_SIZE: Int = 32 * 1024
 
@@ -8,11 +8,9 @@
 package svnserver.parser
 
 import svnserver.parser.token.*
-import java.io.BufferedOutputStream
-import java.io.Closeable
-import java.io.IOException
-import java.io.OutputStream
+import java.io.*
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
 
 /**
  * Интерфейс для записи данных в поток.
@@ -21,8 +19,60 @@ import java.nio.charset.StandardCharsets
  */
 class SvnServerWriter constructor(stream: OutputStream) : Closeable {
 
-    private val stream: OutputStream
+    private val stream: CountingOutputStream
     private var depth: Int = 0
+    private var corked: Boolean = false
+    private var lastFlushBytes: Long = 0
+    private var lastFlushTime: Long = System.nanoTime()
+
+    /**
+     * Number of flushes to underlying stream.
+     */
+    var flushCount: Long = 0
+        private set
+
+    /**
+     * Number of bytes written to underlying stream.
+     */
+    val flushedBytes: Long
+        get() {
+            return lastFlushBytes
+        }
+
+    /**
+     * Run block in corked mode.
+     *
+     * Top-level items are not flushed one by one, they are batched up to [CORK_MAX_BYTES] or [CORK_MAX_DELAY].
+     * Data is flushed on exit from the block, so block must end at protocol sync point (before waiting client reply).
+     */
+    @Throws(IOException::class)
+    fun <T> corked(block: () -> T): T {
+        val prev: Boolean = corked
+        corked = true
+        try {
+            return block()
+        } finally {
+            corked = prev
+            if (!prev && depth == 0) flush()
+        }
+    }
+
+    @Throws(IOException::class)
+    fun flush() {
+        stream.flush()
+        if (stream.count != lastFlushBytes) {
+            flushCount++
+            lastFlushBytes = stream.count
+        }
+        lastFlushTime = System.nanoTime()
+    }
+
+    @Throws(IOException::class)
+    private fun flushItem() {
+        if (depth != 0) return
+        if (corked && stream.count - lastFlushBytes < CORK_MAX_BYTES && System.nanoTime() - lastFlushTime < CORK_MAX_DELAY) return
+        flush()
+    }
 
     @Throws(IOException::class)
     fun listBegin(): SvnServerWriter {
@@ -42,7 +92,7 @@ class SvnServerWriter constructor(stream: OutputStream) : Closeable {
     @Throws(IOException::class)
     fun word(word: String): SvnServerWriter {
         WordToken.write(stream, word)
-        if (depth == 0) stream.flush()
+        flushItem()
         return this
     }
 
@@ -62,14 +112,14 @@ class SvnServerWriter constructor(stream: OutputStream) : Closeable {
     @Throws(IOException::class)
     fun binary(data: ByteArray, offset: Int = 0, length: Int = data.size): SvnServerWriter {
         StringToken.write(stream, data, offset, length)
-        if (depth == 0) stream.flush()
+        flushItem()
         return this
     }
 
     @Throws(IOException::class)
     fun number(number: Long): SvnServerWriter {
         NumberToken.write(stream, number)
-        if (depth == 0) stream.flush()
+        flushItem()
         return this
     }
 
@@ -97,11 +147,22 @@ class SvnServerWriter constructor(stream: OutputStream) : Closeable {
         }
         if (depth == 0) {
             separator()
-            stream.flush()
+            flushItem()
         }
         return this
     }
 
+    /**
+     * Write already encoded top-level items.
+     */
+    @Throws(IOException::class)
+    fun raw(data: ByteArray, offset: Int, length: Int): SvnServerWriter {
+        if (depth != 0) throw IllegalStateException("Encoded items can be written only at top level.")
+        stream.write(data, offset, length)
+        flushItem()
+        return this
+    }
+
     @JvmOverloads
     @Throws(IOException::class)
     fun writeMap(properties: Map<String, String?>?, nullableValues: Boolean = false): SvnServerWriter {
@@ -127,7 +188,29 @@ class SvnServerWriter constructor(stream: OutputStream) : Closeable {
         stream.use { if (depth != 0) throw IllegalStateException("Unmatched parentheses") }
     }
 
+    private class CountingOutputStream(stream: OutputStream) : FilterOutputStream(stream) {
+        var count: Long = 0
+            private set
+
+        @Throws(IOException::class)
+        override fun write(b: Int) {
+            out.write(b)
+            count++
+        }
+
+        @Throws(IOException::class)
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            out.write(b, off, len)
+            count += len
+        }
+    }
+
     init {
-        this.stream = BufferedOutputStream(stream)
+        this.stream = CountingOutputStream(BufferedOutputStream(stream, CORK_MAX_BYTES))
+    }
+
+    companion object {
+        internal const val CORK_MAX_BYTES: Int = 64 * 1024
+        private val CORK_MAX_DELAY: Long = TimeUnit.MILLISECONDS.toNanos(50)
     }
 }
@@ -45,6 +45,80 @@ class WordToken constructor(override val text: String) : TextToken {
     }
 
     companion object {
+        /**
+         * Words which are frequently received from client: command names, editor and report commands, enum values.
+         */
+        private val KNOWN_WORDS = arrayOf(
+            // Commands
+            "reparent", "get-latest-rev", "get-dated-rev", "change-rev-prop", "change-rev-prop2", "rev-proplist", "rev-prop",
+            "commit", "get-file", "get-dir", "check-path", "stat", "get-mergeinfo", "update", "switch", "status", "diff", "log",
+            "get-locations", "get-location-segments", "get-file-revs", "lock", "lock-many", "unlock", "unlock-many", "get-lock",
+            "get-locks", "replay", "replay-range", "get-deleted-rev", "get-iprops", "list",
+            // Editor commands
+            "target-rev", "open-root", "delete-entry", "add-dir", "open-dir", "change-dir-prop", "close-dir", "absent-dir",
+            "add-file", "open-file", "apply-textdelta", "textdelta-chunk", "textdelta-end", "change-file-prop", "close-file",
+            "absent-file", "close-edit", "abort-edit", "finish-replay",
+            // Report commands
+            "set-path", "delete-path", "link-path", "finish-report", "abort-report",
+            // Responses and values
+            "success", "failure", "done", "true", "false", "empty", "files", "immediates", "infinity", "unknown", "none", "file",
+            "dir", "edit-pipeline", "svndiff1", "absent-entries", "depth", "mergeinfo", "log-revprops", "accepts-svndiff2",
+            "kind", "size", "has-props", "created-rev", "time", "last-author"
+        )
+        private const val INTERNED_MASK: Int = 0xFF
+        private val interned: Array<WordToken?> = arrayOfNulls(INTERNED_MASK + 1)
+        private val internedBytes: Array<ByteArray?> = arrayOfNulls(INTERNED_MASK + 1)
+
+        init {
+            for (word in KNOWN_WORDS) {
+                val bytes: ByteArray = word.toByteArray(StandardCharsets.US_ASCII)
+                var index: Int = hash(bytes, 0, bytes.size) and INTERNED_MASK
+                while (true) {
+                    val item: ByteArray? = internedBytes[index]
+                    if (item == null) {
+                        internedBytes[index] = bytes
+                        interned[index] = WordToken(word)
+                        break
+                    }
+                    if (item.contentEquals(bytes)) break
+                    index = (index + 1) and INTERNED_MASK
+                }
+            }
+        }
+
+        /**
+         * Get word token for ASCII bytes.
+         *
+         * Well-known words are shared instances, so parsing them doesn't allocate anything.
+         */
+        fun intern(data: ByteArray, offset: Int, length: Int): WordToken {
+            var index: Int = hash(data, offset, length) and INTERNED_MASK
+            while (true) {
+                val item: ByteArray = internedBytes[index] ?: break
+                if (equals(item, data, offset, length)) {
+                    return interned[index]!!
+                }
+                index = (index + 1) and INTERNED_MASK
+            }
+            return WordToken(String(data, offset, length, StandardCharsets.US_ASCII))
+        }
+
+        private fun hash(data: ByteArray, offset: Int, length: Int): Int {
+            var result = length
+            for (i in offset until offset + length) {
+                result = result * 31 + data[i]
+            }
+            return result xor (result ushr 16)
+        }
+
+        private fun equals(item: ByteArray, data: ByteArray, offset: Int, length: Int): Boolean {
+            if (item.size != length) return false
+            for (i in 0 until length) {
+                if (item[i] != data[offset + i]) return false
+            }
+            return true
+        }
+
         @Throws(IOException::class)
         fun write(stream: OutputStream, word: String) {
             stream.write(word.toByteArray(StandardCharsets.US_ASCII))
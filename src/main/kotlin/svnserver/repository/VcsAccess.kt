@@ -29,6 +29,16 @@ interface VcsAccess : Local {
     @Throws(IOException::class)
     fun canRead(user: User, branch: String, path: String): Boolean
 
+    /**
+     * Check that read access for every path inside subtree is the same as for subtree root.
+     *
+     * Recursive operations use it to check access once per subtree instead of once per entry.
+     */
+    @Throws(IOException::class)
+    fun isUniformSubtree(branch: String, path: String): Boolean {
+        return false
+    }
+
     @Throws(IOException::class, SVNException::class)
     fun checkWrite(user: User, branch: String, path: String) {
         if (user.isAnonymous) throw SVNException(SVNErrorMessage.create(SVNErrorCode.RA_NOT_AUTHORIZED))
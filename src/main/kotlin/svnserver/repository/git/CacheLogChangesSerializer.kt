@@ -0,0 +1,63 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import org.mapdb.DataInput2
+import org.mapdb.DataOutput2
+import org.mapdb.serializer.GroupSerializerObjectArray
+import org.tmatesoft.svn.core.SVNNodeKind
+import svnserver.repository.VcsCopyFrom
+import svnserver.repository.git.cache.CacheLogChange
+import java.io.IOException
+import java.util.*
+
+/**
+ * Serializer for revision changed paths.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class CacheLogChangesSerializer : GroupSerializerObjectArray<SortedMap<String, CacheLogChange>>() {
+    @Throws(IOException::class)
+    override fun serialize(out: DataOutput2, value: SortedMap<String, CacheLogChange>) {
+        out.packInt(value.size)
+        for (en: Map.Entry<String, CacheLogChange> in value.entries) {
+            val change: CacheLogChange = en.value
+            STRING.serialize(out, en.key)
+            out.writeChar(change.change.toInt())
+            STRING.serialize(out, change.kind.toString())
+            out.writeBoolean(change.isContentModified)
+            out.writeBoolean(change.isPropertyModified)
+            val copyFrom: VcsCopyFrom? = change.copyFrom
+            out.writeBoolean(copyFrom != null)
+            if (copyFrom != null) {
+                out.packInt(copyFrom.revision)
+                STRING.serialize(out, copyFrom.path)
+            }
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun deserialize(input: DataInput2, available: Int): SortedMap<String, CacheLogChange> {
+        val result = TreeMap<String, CacheLogChange>()
+        val count: Int = input.unpackInt()
+        for (i in 0 until count) {
+            val path: String = STRING.deserialize(input, available)
+            val change: Char = input.readChar()
+            val kind: SVNNodeKind = SVNNodeKind.parseKind(STRING.deserialize(input, available))
+            val contentModified: Boolean = input.readBoolean()
+            val propertyModified: Boolean = input.readBoolean()
+            val copyFrom: VcsCopyFrom? = if (input.readBoolean()) VcsCopyFrom(input.unpackInt(), STRING.deserialize(input, available)) else null
+            result[path] = CacheLogChange(change, kind, contentModified, propertyModified, copyFrom)
+        }
+        return result
+    }
+
+    companion object {
+        val instance: CacheLogChangesSerializer = CacheLogChangesSerializer()
+    }
+}
@@ -14,7 +14,9 @@ import org.eclipse.jgit.revwalk.RevCommit
 import org.eclipse.jgit.revwalk.RevWalk
 import org.eclipse.jgit.treewalk.TreeWalk
 import org.eclipse.jgit.treewalk.filter.TreeFilter
+import org.mapdb.BTreeMap
 import org.mapdb.HTreeMap
+import org.mapdb.Serializer
 import org.slf4j.Logger
 import org.tmatesoft.svn.core.SVNErrorCode
 import org.tmatesoft.svn.core.SVNErrorMessage
@@ -24,11 +26,20 @@ import svnserver.StringHelper
 import svnserver.auth.User
 import svnserver.repository.VcsCopyFrom
 import svnserver.repository.git.cache.CacheChange
+import svnserver.repository.git.cache.CacheLogChange
 import svnserver.repository.git.cache.CacheRevision
+import svnserver.repository.git.cache.RevisionIndexEntry
 import svnserver.repository.locks.LockStorage
 import java.io.IOException
+import java.io.InterruptedIOException
 import java.nio.charset.StandardCharsets
 import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.locks.ReadWriteLock
 import java.util.concurrent.locks.ReentrantReadWriteLock
 
@@ -45,8 +56,9 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
     private val revisionByDate = TreeMap<Long, GitRevision>()
     private val revisionByHash = HashMap<ObjectId, GitRevision>()
     private val revisionCache: HTreeMap<ObjectId, CacheRevision>
-    private val lastUpdatesLock = ReentrantReadWriteLock()
-    private val lastUpdates = HashMap<String, IntArray>()
+    private val revisionIndex: BTreeMap<Int, RevisionIndexEntry>
+    private val logChangesCache: HTreeMap<ObjectId, SortedMap<String, CacheLogChange>>
+    private val lastUpdates = PathRevisionIndex()
     private val lock = ReentrantReadWriteLock()
 
     @Throws(SVNException::class)
@@ -113,40 +125,78 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
         // Real loading.
         lock.writeLock().lock()
         try {
-            val lastRevision: Int = revisions.size - 1
-            val lastCommitId: ObjectId? = if (lastRevision < 0) null else revisions[lastRevision].cacheCommit
+            if (revisions.isEmpty()) {
+                loadIndexedRevisions()
+            }
             val head: Ref = repository.git.exactRef(svnBranch)
             val newRevs: MutableList<RevCommit> = ArrayList()
-            val revWalk = RevWalk(repository.git)
-            var objectId: ObjectId = head.objectId
             while (true) {
-                if (objectId.equals(lastCommitId)) {
-                    break
+                val lastRevision: Int = revisions.size - 1
+                val lastCommitId: ObjectId? = if (lastRevision < 0) null else revisions[lastRevision].cacheCommit
+                val revWalk = RevWalk(repository.git)
+                var objectId: ObjectId = head.objectId
+                var found = lastCommitId == null
+                while (true) {
+                    if (objectId.equals(lastCommitId)) {
+                        found = true
+                        break
+                    }
+                    val commit: RevCommit = revWalk.parseCommit(objectId)
+                    newRevs.add(commit)
+                    if (commit.parentCount == 0) break
+                    objectId = commit.getParent(0)
                 }
-                val commit: RevCommit = revWalk.parseCommit(objectId)
-                newRevs.add(commit)
-                if (commit.parentCount == 0) break
-                objectId = commit.getParent(0)
+                if (found) break
+                // Loaded revisions don't belong to cache branch anymore: rebuild from scratch.
+                log.warn("[{}]: revision index is out of date, rebuilding", this)
+                resetRevisions()
+                newRevs.clear()
             }
             if (newRevs.isEmpty()) {
                 return
             }
-            val beginTime: Long = System.currentTimeMillis()
-            var processed = 0
-            var reportTime: Long = beginTime
+            val progress = IndexingProgress("loading", newRevs.size)
+            var reportTime: Long = System.currentTimeMillis()
             log.info("[{}]: loading cached revision changes: {} revisions", this, newRevs.size)
-            for (i in newRevs.indices.reversed()) {
-                loadRevisionInfo(newRevs[i])
-                processed++
-                val currentTime: Long = System.currentTimeMillis()
-                if (currentTime - reportTime > REPORT_DELAY) {
-                    log.info("[{}]: processed cached revision: {}/{} ({} rev/sec)", this, newRevs.size - i, newRevs.size, 1000.0f * processed / (currentTime - reportTime))
-                    reportTime = currentTime
-                    processed = 0
+            // Revision changes are independent from each other, so they are computed ahead in parallel.
+            // Revisions itself are still registered one by one in strict order.
+            val baseRevision: Int = revisions.size
+            // Dedicated pool: its threads exit on shutdown and release cached object readers of this repository.
+            val parallelism: Int = Math.min(Runtime.getRuntime().availableProcessors(), newRevs.size)
+            val executor: ExecutorService = Executors.newFixedThreadPool(parallelism) { r: Runnable? ->
+                val thread = Thread(ObjectReaders.releasing(r!!), String.format("SvnServer-indexing-%s", indexingThreadNumber.getAndIncrement()))
+                thread.isDaemon = true
+                thread
+            }
+            val lookAhead: Int = parallelism * 2
+            val tasks = ArrayDeque<Future<CacheRevision>>()
+            var scheduled: Int = newRevs.size
+            try {
+                for (i in newRevs.indices.reversed()) {
+                    while (scheduled > 0 && tasks.size < lookAhead) {
+                        scheduled--
+                        val commit: RevCommit = newRevs[scheduled]
+                        val revisionId: Int = baseRevision + newRevs.size - 1 - scheduled
+                        tasks.addLast(executor.submit(Callable<CacheRevision> {
+                            loadCacheRevision(ObjectReaders.get(repository.git), commit, revisionId)
+                        }))
+                    }
+                    loadRevisionInfo(newRevs[i], waitCacheRevision(tasks.removeFirst()))
+                    progress.increment()
+                    val currentTime: Long = System.currentTimeMillis()
+                    if (currentTime - reportTime > REPORT_DELAY) {
+                        log.info("[{}]: processed cached revision: {}", this, progress)
+                        reportTime = currentTime
+                    }
+                }
+            } finally {
+                for (task in tasks) {
+                    task.cancel(false)
                 }
+                executor.shutdown()
             }
-            val endTime: Long = System.currentTimeMillis()
-            log.info("[{}]: {} cached revision loaded: {} ms", this, newRevs.size, endTime - beginTime)
+            repository.context.shared.cacheDB.commit()
+            log.info("[{}]: {} cached revision loaded: {} ms", this, newRevs.size, progress.elapsedMillis)
         } finally {
             lock.writeLock().unlock()
         }
@@ -162,7 +212,7 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
         try {
             val lastRevision: Int = revisions.size - 1
             if (lastRevision >= 0) {
-                val lastCommitId: ObjectId? = revisions[lastRevision].gitNewCommit
+                val lastCommitId: ObjectId? = revisions[lastRevision].gitNewCommitId
                 val master: Ref? = repository.git.exactRef(gitBranch)
                 if ((master == null) || (master.objectId.equals(lastCommitId))) {
                     return false
@@ -189,30 +239,29 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
                     objectId = commit.getParent(0)
                 }
                 if (newRevs.isNotEmpty()) {
-                    val beginTime: Long = System.currentTimeMillis()
-                    var processed = 0
-                    var reportTime: Long = beginTime
+                    val progress = IndexingProgress("caching", newRevs.size)
+                    var reportTime: Long = System.currentTimeMillis()
                     log.info("[{}]: Loading revision changes: {} revision", this, newRevs.size)
                     var revisionId: Int = revisions.size
                     var cacheId: ObjectId? = revisions[revisions.size - 1].cacheCommit
                     for (i in newRevs.indices.reversed()) {
                         val revCommit: RevCommit = newRevs[i]
                         cacheId = LayoutHelper.createCacheCommit(inserter, (cacheId)!!, revCommit, revisionId, emptyMap())
-                        inserter.flush()
-                        processed++
+                        progress.increment()
                         val currentTime: Long = System.currentTimeMillis()
                         if (currentTime - reportTime > REPORT_DELAY) {
-                            log.info("  processed revision: {} ({} rev/sec)", newRevs.size - i, 1000.0f * processed / (currentTime - reportTime))
+                            log.info("[{}]: processed revision: {}", this, progress)
                             reportTime = currentTime
-                            processed = 0
+                            // Cache commits only reference each other, so objects must be flushed just before ref update.
+                            inserter.flush()
                             val refUpdate: RefUpdate = repository.git.updateRef(svnBranch)
                             refUpdate.setNewObjectId(cacheId)
                             refUpdate.update()
                         }
                         revisionId++
                     }
-                    val endTime: Long = System.currentTimeMillis()
-                    log.info("Revision changes loaded: {} ms", endTime - beginTime)
+                    log.info("[{}]: revision changes loaded: {} ms", this, progress.elapsedMillis)
+                    inserter.flush()
                     val refUpdate: RefUpdate = repository.git.updateRef(svnBranch)
                     refUpdate.setNewObjectId(cacheId)
                     refUpdate.update()
@@ -224,43 +273,77 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
         }
     }
 
+    /**
+     * Restore revisions from persisted index without reading git objects.
+     */
+    private fun loadIndexedRevisions() {
+        val beginTime: Long = System.currentTimeMillis()
+        for (entry: Map.Entry<Int, RevisionIndexEntry> in revisionIndex.entries) {
+            if (entry.key != revisions.size) {
+                break
+            }
+            addRevision(entry.value)
+        }
+        // Drop records after gap (for example, after unclean shutdown).
+        for (revisionId in ArrayList(revisionIndex.tailMap(revisions.size, true).keys)) {
+            revisionIndex.remove(revisionId)
+        }
+        if (revisions.isNotEmpty()) {
+            log.info("[{}]: {} revisions restored from index: {} ms", this, revisions.size, System.currentTimeMillis() - beginTime)
+        }
+    }
+
+    private fun resetRevisions() {
+        revisionIndex.clear()
+        revisions.clear()
+        revisionByDate.clear()
+        revisionByHash.clear()
+        lastUpdates.clear()
+    }
+
     @Throws(IOException::class)
-    private fun loadRevisionInfo(commit: RevCommit) {
-        val reader: ObjectReader = repository.git.newObjectReader()
-        val cacheRevision: CacheRevision = loadCacheRevision(reader, commit, revisions.size)
+    private fun waitCacheRevision(task: Future<CacheRevision>): CacheRevision {
+        try {
+            return task.get()
+        } catch (e: InterruptedException) {
+            throw InterruptedIOException()
+        } catch (e: ExecutionException) {
+            val cause: Throwable = e.cause ?: e
+            if (cause is IOException) throw cause
+            if (cause is RuntimeException) throw cause
+            throw IOException(cause)
+        }
+    }
+
+    private fun loadRevisionInfo(commit: RevCommit, cacheRevision: CacheRevision) {
+        val changes = TreeMap<String, Boolean>()
+        for (entry: Map.Entry<String, CacheChange> in cacheRevision.getFileChange().entries) {
+            changes[entry.key] = entry.value.newFile == null
+        }
+        val indexEntry = RevisionIndexEntry(commit, cacheRevision.gitCommitId, commit.commitTime, cacheRevision.getRenames(), changes)
+        revisionIndex[revisions.size] = indexEntry
+        addRevision(indexEntry)
+    }
+
+    private fun addRevision(indexEntry: RevisionIndexEntry) {
         val revisionId: Int = revisions.size
         val copyFroms: MutableMap<String, VcsCopyFrom> = HashMap()
-        for (entry: Map.Entry<String, String> in cacheRevision.getRenames().entries) {
+        for (entry: Map.Entry<String, String> in indexEntry.getRenames().entries) {
             copyFroms[entry.key] = VcsCopyFrom(revisionId - 1, entry.value)
         }
-        val oldCommit: RevCommit? = if (revisions.isEmpty()) null else revisions[revisions.size - 1].gitNewCommit
-        val svnCommit: RevCommit? = if (cacheRevision.gitCommitId != null) RevWalk(reader).parseCommit(cacheRevision.gitCommitId) else null
-        try {
-            lastUpdatesLock.writeLock().lock()
-            for (entry: Map.Entry<String, CacheChange> in cacheRevision.getFileChange().entries) {
-                lastUpdates.compute(entry.key) { _, list ->
-                    val markNoFile: Boolean = entry.value.newFile == null
-                    val prevLen: Int = list?.size ?: 0
-                    val newLen: Int = prevLen + 1 + (if (markNoFile) 1 else 0)
-                    val result: IntArray = if (list == null) IntArray(newLen) else Arrays.copyOf(list, newLen)
-                    result[prevLen] = revisionId
-                    if (markNoFile) {
-                        result[prevLen + 1] = MARK_NO_FILE
-                    }
-                    result
-                }
-            }
-        } finally {
-            lastUpdatesLock.writeLock().unlock()
+        val oldCommitId: ObjectId? = if (revisions.isEmpty()) null else revisions[revisions.size - 1].gitNewCommitId
+        for (entry: Map.Entry<String, Boolean> in indexEntry.getChanges().entries) {
+            lastUpdates.add(entry.key, revisionId, entry.value)
         }
-        val revision = GitRevision(this, commit.id, revisionId, copyFroms, oldCommit, svnCommit, commit.commitTime)
+        val svnCommitId: ObjectId? = indexEntry.gitCommitId
+        val revision = GitRevision(this, indexEntry.cacheCommitId, revisionId, copyFroms, oldCommitId, svnCommitId, indexEntry.commitTime)
         if (revision.id > 0) {
             if (revisionByDate.isEmpty() || revisionByDate.lastKey() <= revision.date) {
                 revisionByDate[revision.date] = revision
             }
         }
-        if (svnCommit != null) {
-            revisionByHash[svnCommit.id] = revision
+        if (svnCommitId != null) {
+            revisionByHash[svnCommitId] = revision
         }
         revisions.add(revision)
     }
@@ -303,7 +386,7 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
         if ((oldTreeId == null) || (newTreeId == null) || !Objects.equals(oldTreeId.repo, newTreeId.repo)) {
             return emptyMap()
         }
-        val tw = TreeWalk(repository.git)
+        val tw = TreeWalk(ObjectReaders.get(repository.git))
         tw.isRecursive = true
         tw.filter = TreeFilter.ANY_DIFF
         tw.addTree(oldTreeId.`object`)
@@ -319,6 +402,22 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
         return result
     }
 
+    /**
+     * Get changed paths for log. Computed once per revision and persisted.
+     */
+    @Throws(IOException::class)
+    internal fun getLogChanges(revision: GitRevision): Map<String, CacheLogChange> {
+        var result: SortedMap<String, CacheLogChange>? = logChangesCache[revision.cacheCommit]
+        if (result == null) {
+            result = TreeMap()
+            for (entry: Map.Entry<String, GitLogEntry> in revision.changes.entries) {
+                result[entry.key] = CacheLogChange.create(entry.value) ?: continue
+            }
+            logChangesCache[revision.cacheCommit] = result
+        }
+        return Collections.unmodifiableMap(result)
+    }
+
     fun getRevisionByDate(dateTime: Long): GitRevision {
         lock.readLock().lock()
         try {
@@ -348,26 +447,27 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
 
     fun getLastChange(nodePath: String, beforeRevision: Int): Int? {
         if (nodePath.isEmpty()) return beforeRevision
-        try {
-            lastUpdatesLock.readLock().lock()
-            val revs: IntArray? = lastUpdates[nodePath]
-            if (revs != null) {
-                var prev = 0
-                for (i in revs.indices.reversed()) {
-                    val rev: Int = revs[i]
-                    if ((rev >= 0) && (rev <= beforeRevision)) {
-                        if (prev == MARK_NO_FILE) {
-                            return null
-                        }
-                        return rev
-                    }
-                    prev = rev
-                }
-            }
-        } finally {
-            lastUpdatesLock.readLock().unlock()
-        }
-        return null
+        return lastUpdates.getLastChange(nodePath, beforeRevision)
+    }
+
+    /**
+     * Check if path was removed by given revision.
+     */
+    fun isRemoved(nodePath: String, revision: Int): Boolean {
+        if (nodePath.isEmpty()) return false
+        return lastUpdates.getNextRemoval(nodePath, revision - 1) == revision
+    }
+
+    /**
+     * Find revision in (pegRevision, endRevision] range, when path existing in pegRevision was removed.
+     *
+     * @return Revision number or null if path doesn't exist in pegRevision or was not removed in range.
+     */
+    fun getDeletedRevision(nodePath: String, pegRevision: Int, endRevision: Int): Int? {
+        if (nodePath.isEmpty()) return null
+        if (lastUpdates.getLastChange(nodePath, pegRevision) == null) return null
+        val removed: Int = lastUpdates.getNextRemoval(nodePath, pegRevision) ?: return null
+        return if (removed <= endRevision) removed else null
     }
 
     @Throws(SVNException::class)
@@ -384,19 +484,21 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
 
     companion object {
         private const val revisionCacheVersion: Int = 2
+        private const val revisionIndexVersion: Int = 1
+        private const val logChangesCacheVersion: Int = 1
         private const val repositoryVersion: Int = 4
         private const val REPORT_DELAY: Int = 2500
-        private const val MARK_NO_FILE: Int = -1
         private val log: Logger = Loggers.git
+        private val indexingThreadNumber: AtomicInteger = AtomicInteger(1)
 
         @Throws(IOException::class)
         private fun loadRepositoryId(repository: Repository, ref: Ref): String {
             var oid: ObjectId? = ref.objectId
-            val revWalk = RevWalk(repository)
+            val revWalk = RevWalk(ObjectReaders.get(repository))
             while (true) {
                 val revCommit: RevCommit = revWalk.parseCommit(oid)
                 if (revCommit.parentCount == 0) {
-                    return LayoutHelper.loadRepositoryId(repository.newObjectReader(), oid)
+                    return LayoutHelper.loadRepositoryId(ObjectReaders.get(repository), oid)
                 }
                 oid = revCommit.getParent(0)
             }
@@ -419,5 +521,21 @@ class GitBranch constructor(val repository: GitRepository, val shortBranchName:
             ObjectIdSerializer.instance,
             CacheRevisionSerializer.instance
         ).createOrOpen()
+        val revisionIndexName: String = String.format(
+            "cache-revision-index.%s.%s.%s.v%s", repository.context.name, gitBranch, if (repository.hasRenameDetection()) 1 else 0, revisionIndexVersion
+        )
+        revisionIndex = repository.context.shared.cacheDB.treeMap<Int, RevisionIndexEntry>(
+            revisionIndexName,
+            Serializer.INTEGER,
+            RevisionIndexEntrySerializer.instance
+        ).createOrOpen()
+        val logChangesCacheName: String = String.format(
+            "cache-log.%s.%s.%s.v%s", repository.context.name, gitBranch, if (repository.hasRenameDetection()) 1 else 0, logChangesCacheVersion
+        )
+        logChangesCache = repository.context.shared.cacheDB.hashMap<ObjectId, SortedMap<String, CacheLogChange>>(
+            logChangesCacheName,
+            ObjectIdSerializer.instance,
+            CacheLogChangesSerializer.instance
+        ).createOrOpen()
     }
 }
@@ -17,8 +17,8 @@ import java.io.IOException
  *
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
-internal open class GitEntryImpl constructor(parentProps: Array<GitProperty>, private val parentPath: String, props: Array<GitProperty>, final override val fileName: String, fileMode: FileMode) : GitEntry {
-    override val rawProperties: Array<GitProperty> = GitProperty.joinProperties(parentProps, fileName, fileMode, props)
+internal open class GitEntryImpl constructor(private val parentPath: String, final override val rawProperties: Array<GitProperty>, final override val fileName: String) : GitEntry {
+    constructor(parentProps: Array<GitProperty>, parentPath: String, props: Array<GitProperty>, fileName: String, fileMode: FileMode) : this(parentPath, GitProperty.joinProperties(parentProps, fileName, fileMode, props), fileName)
 
     // Cache
     private var fullPathCache: String? = null
@@ -13,7 +13,6 @@ import org.eclipse.jgit.revwalk.RevTree
 import org.tmatesoft.svn.core.SVNProperty
 import ru.bozaro.gitlfs.common.Constants
 import svnserver.repository.VcsCopyFrom
-import svnserver.repository.VcsSupplier
 import svnserver.repository.git.filter.GitFilter
 import svnserver.repository.git.prop.GitProperty
 import java.io.IOException
@@ -26,9 +25,12 @@ import java.util.*
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
 internal class GitFileTreeEntry private constructor(
-    override val branch: GitBranch, parentProps: Array<GitProperty>, parentPath: String, override val treeEntry: GitTreeEntry, override val revision: Int, // Cache
-    private val entriesCache: EntriesCache
-) : GitEntryImpl(parentProps, parentPath, branch.repository.collectProperties(treeEntry, entriesCache), treeEntry.fileName, treeEntry.fileMode), GitFile {
+    override val branch: GitBranch, parentPath: String, private val node: GitTreeNode, override val revision: Int
+) : GitEntryImpl(parentPath, node.rawProperties, node.treeEntry.fileName), GitFile {
+    override val treeEntry: GitTreeEntry
+        get() {
+            return node.treeEntry
+        }
     override val filter: GitFilter = branch.repository.getFilter(treeEntry.fileMode, rawProperties)
 
     private var treeEntriesCache: Iterable<GitFile>? = null
@@ -70,28 +72,34 @@ internal class GitFileTreeEntry private constructor(
     @get:Throws(IOException::class)
     override val properties: Map<String, String>
         get() {
-            val props = upstreamProperties.toMutableMap()
-            val fileMode = fileMode
-            if ((fileMode == FileMode.SYMLINK)) {
+            return branch.repository.getNodeProperties(treeEntry, rawProperties) { loadProperties() }
+        }
+
+    @Throws(IOException::class)
+    private fun loadProperties(): Map<String, String> {
+        val props = upstreamProperties.toMutableMap()
+        val fileMode = fileMode
+        if ((fileMode == FileMode.SYMLINK)) {
+            props.remove(SVNProperty.EOL_STYLE)
+            props.remove(SVNProperty.MIME_TYPE)
+            props[SVNProperty.SPECIAL] = "*"
+        } else {
+            if ((fileMode == FileMode.EXECUTABLE_FILE)) props[SVNProperty.EXECUTABLE] = "*"
+            if (props.containsKey(SVNProperty.MIME_TYPE)) {
                 props.remove(SVNProperty.EOL_STYLE)
+            } else if (props.containsKey(SVNProperty.EOL_STYLE)) {
                 props.remove(SVNProperty.MIME_TYPE)
-                props[SVNProperty.SPECIAL] = "*"
-            } else {
-                if ((fileMode == FileMode.EXECUTABLE_FILE)) props[SVNProperty.EXECUTABLE] = "*"
-                if (props.containsKey(SVNProperty.MIME_TYPE)) {
-                    props.remove(SVNProperty.EOL_STYLE)
-                } else if (props.containsKey(SVNProperty.EOL_STYLE)) {
-                    props.remove(SVNProperty.MIME_TYPE)
-                } else if (fileMode.objectType == org.eclipse.jgit.lib.Constants.OBJ_BLOB) {
-                    if (branch.repository.isObjectBinary(filter, objectId)) {
-                        props[SVNProperty.MIME_TYPE] = Constants.MIME_BINARY
-                    } else {
-                        props[SVNProperty.EOL_STYLE] = SVNProperty.EOL_STYLE_NATIVE
-                    }
+            } else if (fileMode.objectType == org.eclipse.jgit.lib.Constants.OBJ_BLOB) {
+                if (branch.repository.isObjectBinary(filter, objectId)) {
+                    props[SVNProperty.MIME_TYPE] = Constants.MIME_BINARY
+                } else {
+                    props[SVNProperty.EOL_STYLE] = SVNProperty.EOL_STYLE_NATIVE
                 }
             }
-            return props
         }
+        return props
+    }
+
     override val fileMode: FileMode
         get() {
             return treeEntry.fileMode
@@ -103,7 +111,7 @@ internal class GitFileTreeEntry private constructor(
             if (treeEntriesCache == null) {
                 val result = ArrayList<GitFile>()
                 val fullPath = fullPath
-                for (entry in entriesCache.get()) {
+                for (entry in node.get()) {
                     result.add(create(branch, rawProperties, fullPath, entry, revision))
                 }
                 treeEntriesCache = result
@@ -113,12 +121,8 @@ internal class GitFileTreeEntry private constructor(
 
     @Throws(IOException::class)
     override fun getEntry(name: String): GitFile? {
-        for (entry: GitTreeEntry in entriesCache.get()) {
-            if ((entry.fileName == name)) {
-                return create(branch, rawProperties, fullPath, (entry), revision)
-            }
-        }
-        return null
+        val entry: GitTreeEntry = node.getEntry(name) ?: return null
+        return create(branch, rawProperties, fullPath, entry, revision)
     }
 
     override fun hashCode(): Int {
@@ -141,18 +145,6 @@ internal class GitFileTreeEntry private constructor(
                 '}')
     }
 
-    private class EntriesCache(private val repo: GitRepository, private val treeEntry: GitTreeEntry) : VcsSupplier<Iterable<GitTreeEntry>> {
-        private var rawEntriesCache: Iterable<GitTreeEntry>? = null
-
-        @Throws(IOException::class)
-        override fun get(): Iterable<GitTreeEntry> {
-            if (rawEntriesCache == null) {
-                rawEntriesCache = repo.loadTree(treeEntry)
-            }
-            return rawEntriesCache!!
-        }
-    }
-
     companion object {
         @Throws(IOException::class)
         fun create(branch: GitBranch, tree: RevTree, revision: Int): GitFile {
@@ -161,7 +153,7 @@ internal class GitFileTreeEntry private constructor(
 
         @Throws(IOException::class)
         private fun create(branch: GitBranch, parentProps: Array<GitProperty>, parentPath: String, treeEntry: GitTreeEntry, revision: Int): GitFile {
-            return GitFileTreeEntry(branch, parentProps, parentPath, treeEntry, revision, EntriesCache(branch.repository, treeEntry))
+            return GitFileTreeEntry(branch, parentPath, branch.repository.getTreeNode(treeEntry, parentProps), revision)
         }
     }
 }
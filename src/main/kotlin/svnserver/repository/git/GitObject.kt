@@ -28,7 +28,7 @@ class GitObject<T : ObjectId> constructor(val repo: Repository, val `object`: T)
 
     @Throws(IOException::class)
     fun openObject(): ObjectLoader {
-        return repo.newObjectReader().open(`object`)
+        return ObjectReaders.get(repo).open(`object`)
     }
 
     override fun hashCode(): Int {
@@ -7,21 +7,25 @@
  */
 package svnserver.repository.git
 
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheStats
+import com.google.common.cache.Weigher
 import com.sun.nio.sctp.InvalidStreamException
 import org.eclipse.jgit.lib.*
 import org.eclipse.jgit.revwalk.RevCommit
-import org.eclipse.jgit.treewalk.CanonicalTreeParser
 import org.mapdb.DB
-import org.mapdb.HTreeMap
-import org.mapdb.Serializer
+import org.slf4j.Logger
 import org.tmatesoft.svn.core.SVNException
 import org.tmatesoft.svn.core.internal.wc.SVNFileUtil
+import svnserver.Loggers
 import svnserver.StringHelper
 import svnserver.context.LocalContext
 import svnserver.context.SharedContext
 import svnserver.repository.SvnForbiddenException
 import svnserver.repository.VcsSupplier
 import svnserver.repository.git.filter.GitFilter
+import svnserver.repository.git.filter.GitFilterCache
 import svnserver.repository.git.filter.GitFilters
 import svnserver.repository.git.prop.GitProperty
 import svnserver.repository.git.prop.GitPropertyFactory
@@ -32,7 +36,6 @@ import svnserver.repository.locks.LockWorker
 import java.io.IOException
 import java.nio.charset.StandardCharsets
 import java.util.*
-import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.locks.Lock
 import java.util.concurrent.locks.ReadWriteLock
 import java.util.concurrent.locks.ReentrantReadWriteLock
@@ -54,10 +57,17 @@ class GitRepository constructor(
 ) : AutoCloseable, BranchProvider {
     val git: Repository
     val pusher: GitPusher
-    private val binaryCache: HTreeMap<String, Boolean>
+    private val filterCache: GitFilterCache
     private val gitFilters: GitFilters
-    private val directoryPropertyCache = ConcurrentHashMap<ObjectId, Array<GitProperty>>()
-    private val filePropertyCache = ConcurrentHashMap<ObjectId, Array<GitProperty>>()
+    private val treeCache: GitTreeCache
+    private val treeNodeCache: GitTreeNodeCache
+    private val directoryPropertyCache: Cache<ObjectId, Array<GitProperty>> = createPropertyCache()
+    private val filePropertyCache: Cache<ObjectId, Array<GitProperty>> = createPropertyCache()
+    private val nodePropertiesCache: Cache<NodePropertiesKey, Map<String, String>> = CacheBuilder.newBuilder()
+        .maximumWeight(PROPERTY_CACHE_WEIGHT)
+        .weigher(Weigher<NodePropertiesKey, Map<String, String>> { _, value -> value.size + 1 })
+        .recordStats()
+        .build()
     private val renameDetection: Boolean
     private val lockManagerRwLock = ReentrantReadWriteLock()
     private val lockStorage: LockStorage
@@ -68,9 +78,27 @@ class GitRepository constructor(
     }
 
     override fun close() {
+        log.info("[{}]: property cache statistics: directories {}, files {}", context.name, directoryPropertyCacheStats, filePropertyCacheStats)
+        log.info("[{}]: node properties cache statistics: {}", context.name, nodePropertiesCacheStats)
         context.shared.sure(GitSubmodules::class.java).unregister(git)
+        treeNodeCache.invalidate(this)
     }
 
+    val directoryPropertyCacheStats: CacheStats
+        get() {
+            return directoryPropertyCache.stats()
+        }
+
+    val filePropertyCacheStats: CacheStats
+        get() {
+            return filePropertyCache.stats()
+        }
+
+    val nodePropertiesCacheStats: CacheStats
+        get() {
+            return nodePropertiesCache.stats()
+        }
+
     @Throws(SVNException::class, IOException::class)
     fun <T> wrapLockWrite(work: LockWorker<T>): T {
         val result: T = wrapLock(lockManagerRwLock.writeLock(), work)
@@ -91,7 +119,7 @@ class GitRepository constructor(
     @Throws(IOException::class)
     fun collectProperties(treeEntry: GitTreeEntry, entryProvider: VcsSupplier<Iterable<GitTreeEntry>>): Array<GitProperty> {
         if (treeEntry.fileMode.objectType == Constants.OBJ_BLOB) return emptyArray()
-        var props = directoryPropertyCache[treeEntry.objectId.`object`]
+        var props = directoryPropertyCache.getIfPresent(treeEntry.objectId.`object`)
         if (props == null) {
             val propList = ArrayList<GitProperty>()
             try {
@@ -104,7 +132,7 @@ class GitRepository constructor(
             } catch (ignored: SvnForbiddenException) {
             }
             props = propList.toTypedArray()
-            directoryPropertyCache[treeEntry.objectId.`object`] = props
+            directoryPropertyCache.put(treeEntry.objectId.`object`, props)
         }
         return props
     }
@@ -117,11 +145,11 @@ class GitRepository constructor(
 
     @Throws(IOException::class)
     private fun cachedParseGitProperty(objectId: GitObject<ObjectId>, factory: GitPropertyFactory): Array<GitProperty> {
-        var property: Array<GitProperty>? = filePropertyCache[objectId.`object`]
+        var property: Array<GitProperty>? = filePropertyCache.getIfPresent(objectId.`object`)
         if (property == null) {
-            objectId.repo.newObjectReader().use { reader -> reader.open(objectId.`object`).openStream().use { stream -> property = factory.create(stream) } }
+            objectId.openObject().openStream().use { stream -> property = factory.create(stream) }
             if (property!!.isEmpty()) property = emptyArray()
-            filePropertyCache[objectId.`object`] = property!!
+            filePropertyCache.put(objectId.`object`, property!!)
         }
         return property!!
     }
@@ -139,33 +167,48 @@ class GitRepository constructor(
     @Throws(IOException::class)
     fun isObjectBinary(filter: GitFilter?, objectId: GitObject<out ObjectId>?): Boolean {
         if (objectId == null || filter == null) return false
-        val key: String = filter.name + " " + objectId.`object`.name()
-        var result: Boolean? = (binaryCache[key])
-        if (result == null) {
-            filter.inputStream(objectId).use { stream -> result = SVNFileUtil.detectMimeType(stream) != null }
-            binaryCache.putIfAbsent(key, result)
-        }
-        return result!!
+        val cache: GitFilterCache.Filter = filterCache.getFilter(filter.name)
+        val cached: Boolean? = cache.isBinary(objectId.`object`)
+        if (cached != null) return cached
+        val result: Boolean = filter.inputStream(objectId).use { stream -> SVNFileUtil.detectMimeType(stream) != null }
+        cache.putBinary(objectId.`object`, result)
+        return result
+    }
+
+    /**
+     * Get subversion properties of node. Properties depend only on node content, file mode and effective git
+     * properties, so they are computed once per distinct node and shared as immutable map.
+     */
+    @Throws(IOException::class)
+    fun getNodeProperties(treeEntry: GitTreeEntry, rawProperties: Array<GitProperty>, loader: VcsSupplier<Map<String, String>>): Map<String, String> {
+        val key = NodePropertiesKey(treeEntry.objectId.`object`, treeEntry.fileMode, rawProperties)
+        val cached: Map<String, String>? = nodePropertiesCache.getIfPresent(key)
+        if (cached != null) return cached
+        val loaded: Map<String, String> = loader.get()
+        val props: Map<String, String> = if (loaded.isEmpty()) emptyMap() else Collections.unmodifiableMap(loaded)
+        nodePropertiesCache.put(key, props)
+        return props
+    }
+
+    /**
+     * Resolve tree node. Directory nodes are cached, so deep path lookups reuse already resolved ancestors.
+     */
+    @Throws(IOException::class)
+    internal fun getTreeNode(treeEntry: GitTreeEntry, parentProps: Array<GitProperty>): GitTreeNode {
+        if (treeEntry.fileMode.objectType == Constants.OBJ_BLOB) return GitTreeNode(this, treeEntry, parentProps)
+        return treeNodeCache.get(this, treeEntry, parentProps)
     }
 
     @Throws(IOException::class)
     fun loadTree(tree: GitTreeEntry?): Iterable<GitTreeEntry> {
         val treeId = getTreeObject(tree) ?: return emptyList()
-        // Loading tree.
-        val result = ArrayList<GitTreeEntry>()
-        val repo = treeId.repo
-        val treeParser = CanonicalTreeParser(emptyBytes, repo.newObjectReader(), treeId.`object`)
-        while (!treeParser.eof()) {
-            result.add(
-                GitTreeEntry(
-                    treeParser.entryFileMode,
-                    GitObject(repo, treeParser.entryObjectId),
-                    treeParser.entryPathString
-                )
-            )
-            treeParser.next()
-        }
-        return result
+        return treeCache.load(treeId)
+    }
+
+    @Throws(IOException::class)
+    fun findTreeEntry(tree: GitTreeEntry?, name: String): GitTreeEntry? {
+        val treeId = getTreeObject(tree) ?: return null
+        return treeCache.find(treeId, name)
     }
 
     @Throws(IOException::class)
@@ -195,8 +238,45 @@ class GitRepository constructor(
         return wrapLock(lockManagerRwLock.readLock(), work)
     }
 
+    private class NodePropertiesKey(objectId: ObjectId, private val fileMode: FileMode, private val rawProperties: Array<GitProperty>) {
+        private val objectId: ObjectId = objectId.copy()
+        private val hash: Int = (objectId.hashCode() * 31 + fileMode.hashCode()) * 31 + rawProperties.contentHashCode()
+
+        override fun equals(other: Any?): Boolean {
+            if (this === other) return true
+            if (other == null || javaClass != other.javaClass) return false
+            val that = other as NodePropertiesKey
+            return hash == that.hash
+                    && objectId == that.objectId
+                    && fileMode == that.fileMode
+                    && rawProperties.contentEquals(that.rawProperties)
+        }
+
+        override fun hashCode(): Int {
+            return hash
+        }
+    }
+
     companion object {
         val emptyBytes: ByteArray = byteArrayOf()
+        private val log: Logger = Loggers.git
+
+        /**
+         * Property cache limit. Every cached entry costs one unit plus one unit per parsed property.
+         */
+        private const val PROPERTY_CACHE_WEIGHT: Long = 256 * 1024
+
+        /**
+         * Resolved directory node cache limit. Every cached node costs one unit plus one unit per tree entry.
+         */
+
+        private fun createPropertyCache(): Cache<ObjectId, Array<GitProperty>> {
+            return CacheBuilder.newBuilder()
+                .maximumWeight(PROPERTY_CACHE_WEIGHT)
+                .weigher(Weigher<ObjectId, Array<GitProperty>> { _, value -> value.size + 1 })
+                .recordStats()
+                .build()
+        }
 
         @Throws(IOException::class)
         fun loadContent(reader: ObjectReader, objectId: ObjectId): String {
@@ -208,9 +288,11 @@ class GitRepository constructor(
     init {
         val shared: SharedContext = context.shared
         shared.getOrCreate(GitSubmodules::class.java) { GitSubmodules() }.register(git)
+        treeCache = shared.getOrCreate(GitTreeCache::class.java) { GitTreeCache(GitTreeCache.DEFAULT_SIZE_MB) }
+        treeNodeCache = shared.getOrCreate(GitTreeNodeCache::class.java) { GitTreeNodeCache(GitTreeNodeCache.DEFAULT_SIZE) }
         this.git = git
         db = shared.cacheDB
-        binaryCache = db.hashMap("cache.binary", Serializer.STRING, Serializer.BOOLEAN).createOrOpen()
+        filterCache = GitFilterCache.get(shared)
         this.pusher = pusher
         this.renameDetection = renameDetection
         this.lockStorage = lockStorage
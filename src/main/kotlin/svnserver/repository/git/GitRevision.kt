@@ -10,10 +10,12 @@ package svnserver.repository.git
 import org.eclipse.jgit.lib.ObjectId
 import org.eclipse.jgit.lib.PersonIdent
 import org.eclipse.jgit.revwalk.RevCommit
+import org.eclipse.jgit.revwalk.RevWalk
 import org.tmatesoft.svn.core.SVNRevisionProperty
 import svnserver.StringHelper
 import svnserver.SvnConstants
 import svnserver.repository.VcsCopyFrom
+import svnserver.repository.git.cache.CacheLogChange
 import java.io.IOException
 import java.util.*
 import java.util.concurrent.TimeUnit
@@ -28,11 +30,22 @@ class GitRevision internal constructor(
     val cacheCommit: ObjectId,
     val id: Int,
     private val renames: Map<String, VcsCopyFrom>,
-    private val gitOldCommit: RevCommit?,
-    val gitNewCommit: RevCommit?,
+    private val gitOldCommitId: ObjectId?,
+    internal val gitNewCommitId: ObjectId?,
     commitTimeSec: Int
 ) {
     val date: Long = TimeUnit.SECONDS.toMillis(commitTimeSec.toLong())
+
+    // Commits are parsed on demand: revisions restored from index must not touch git objects on startup.
+    private val gitOldCommit: RevCommit? by lazy { parseCommit(gitOldCommitId) }
+    val gitNewCommit: RevCommit? by lazy { parseCommit(gitNewCommitId) }
+
+    @Throws(IOException::class)
+    private fun parseCommit(commitId: ObjectId?): RevCommit? {
+        if (commitId == null) return null
+        RevWalk(ObjectReaders.get(branch.repository.git)).use { revWalk -> return revWalk.parseCommit(commitId) }
+    }
+
     fun getProperties(includeInternalProps: Boolean): Map<String, String> {
         val props = HashMap<String, String>()
         if (includeInternalProps) {
@@ -40,8 +53,8 @@ class GitRevision internal constructor(
             putProperty(props, SVNRevisionProperty.LOG, log)
             putProperty(props, SVNRevisionProperty.DATE, dateString)
         }
-        if (gitNewCommit != null) {
-            props[SvnConstants.PROP_GIT] = gitNewCommit.name()
+        if (gitNewCommitId != null) {
+            props[SvnConstants.PROP_GIT] = gitNewCommitId.name()
         }
         return props
     }
@@ -54,8 +67,8 @@ class GitRevision internal constructor(
 
     val author: String?
         get() {
-            if (gitNewCommit == null) return null
-            val ident: PersonIdent = gitNewCommit.authorIdent
+            val commit: RevCommit = gitNewCommit ?: return null
+            val ident: PersonIdent = commit.authorIdent
             return String.format("%s <%s>", ident.name, ident.emailAddress)
         }
     val log: String?
@@ -69,10 +82,8 @@ class GitRevision internal constructor(
 
     @Throws(IOException::class)
     fun getFile(fullPath: String): GitFile? {
-        if (gitNewCommit == null) {
-            return if (fullPath.isEmpty()) GitFileEmptyTree(branch, "", id) else null
-        }
-        var result: GitFile? = GitFileTreeEntry.create(branch, gitNewCommit.tree, id)
+        val commit: RevCommit = gitNewCommit ?: return if (fullPath.isEmpty()) GitFileEmptyTree(branch, "", id) else null
+        var result: GitFile? = GitFileTreeEntry.create(branch, commit.tree, id)
         for (pathItem: String in fullPath.split("/").toTypedArray()) {
             if (pathItem.isEmpty()) {
                 continue
@@ -88,14 +99,22 @@ class GitRevision internal constructor(
     @get:Throws(IOException::class)
     val changes: Map<String, GitLogEntry>
         get() {
-            if (gitNewCommit == null) {
-                return emptyMap()
-            }
-            val oldTree: GitFile = if (gitOldCommit == null) GitFileEmptyTree(branch, "", id - 1) else GitFileTreeEntry.create(branch, gitOldCommit.tree, id - 1)
-            val newTree: GitFile = GitFileTreeEntry.create(branch, gitNewCommit.tree, id)
+            val newCommit: RevCommit = gitNewCommit ?: return emptyMap()
+            val oldCommit: RevCommit? = gitOldCommit
+            val oldTree: GitFile = if (oldCommit == null) GitFileEmptyTree(branch, "", id - 1) else GitFileTreeEntry.create(branch, oldCommit.tree, id - 1)
+            val newTree: GitFile = GitFileTreeEntry.create(branch, newCommit.tree, id)
             return ChangeHelper.collectChanges(oldTree, newTree, false)
         }
 
+    /**
+     * Changed paths for log. Unlike [changes], doesn't walk trees after first call.
+     */
+    @get:Throws(IOException::class)
+    val logChanges: Map<String, CacheLogChange>
+        get() {
+            return branch.getLogChanges(this)
+        }
+
     fun getCopyFrom(fullPath: String): VcsCopyFrom? {
         return renames[fullPath]
     }
@@ -43,7 +43,7 @@ class GitSubmodules : Shared {
     @Throws(IOException::class)
     fun findCommit(objectId: ObjectId): GitObject<RevCommit>? {
         for (repo: Repository in repositories) {
-            if (repo.objectDatabase.has(objectId)) return GitObject(repo, RevWalk(repo).parseCommit(objectId))
+            if (repo.objectDatabase.has(objectId)) return GitObject(repo, RevWalk(ObjectReaders.get(repo)).parseCommit(objectId))
         }
         return null
     }
@@ -0,0 +1,134 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheStats
+import com.google.common.cache.Weigher
+import org.eclipse.jgit.lib.Constants
+import org.eclipse.jgit.lib.FileMode
+import org.eclipse.jgit.lib.ObjectId
+import org.eclipse.jgit.lib.Repository
+import org.eclipse.jgit.treewalk.CanonicalTreeParser
+import org.eclipse.jgit.util.RawParseUtils
+import org.slf4j.Logger
+import svnserver.Loggers
+import svnserver.context.Shared
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.nio.charset.StandardCharsets
+import java.util.*
+
+/**
+ * Decoded git trees shared by all repositories and sessions.
+ *
+ * Trees are stored packed: names, modes and raw object ids are kept in flat arrays, so cached tree costs
+ * roughly the same memory as its canonical git representation.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GitTreeCache(maxSizeMb: Int) : Shared {
+    private val cache: Cache<ObjectId, PackedTree> = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeMb.toLong() * 1024 * 1024)
+        .weigher(Weigher<ObjectId, PackedTree> { _, value -> value.weight })
+        .recordStats()
+        .build()
+
+    val stats: CacheStats
+        get() {
+            return cache.stats()
+        }
+
+    @Throws(IOException::class)
+    fun load(treeId: GitObject<ObjectId>): List<GitTreeEntry> {
+        return getTree(treeId).unpack(treeId.repo)
+    }
+
+    /**
+     * Find tree entry by name without decoding other entries.
+     */
+    @Throws(IOException::class)
+    fun find(treeId: GitObject<ObjectId>, name: String): GitTreeEntry? {
+        return getTree(treeId).find(treeId.repo, name.toByteArray(StandardCharsets.UTF_8))
+    }
+
+    @Throws(IOException::class)
+    private fun getTree(treeId: GitObject<ObjectId>): PackedTree {
+        val key: ObjectId = treeId.`object`
+        var tree: PackedTree? = cache.getIfPresent(key)
+        if (tree == null) {
+            tree = parse(treeId.repo, key)
+            cache.put(key.copy(), tree)
+        }
+        return tree
+    }
+
+    override fun close() {
+        log.info("Tree cache statistics: {}, size: {} trees", stats, cache.size())
+    }
+
+    private class PackedTree(private val names: ByteArray, private val nameEnds: IntArray, private val modes: IntArray, private val ids: ByteArray) {
+        val weight: Int
+            get() {
+                return OVERHEAD + names.size + ids.size + (nameEnds.size + modes.size) * 4
+            }
+
+        fun unpack(repo: Repository): List<GitTreeEntry> {
+            val result = ArrayList<GitTreeEntry>(modes.size)
+            var nameStart = 0
+            for (i in modes.indices) {
+                val name: String = RawParseUtils.decode(names, nameStart, nameEnds[i])
+                val objectId: ObjectId = ObjectId.fromRaw(ids, i * Constants.OBJECT_ID_LENGTH)
+                result.add(GitTreeEntry(FileMode.fromBits(modes[i]), GitObject(repo, objectId), name))
+                nameStart = nameEnds[i]
+            }
+            return result
+        }
+
+        fun find(repo: Repository, name: ByteArray): GitTreeEntry? {
+            var nameStart = 0
+            for (i in modes.indices) {
+                if (Arrays.equals(names, nameStart, nameEnds[i], name, 0, name.size)) {
+                    return GitTreeEntry(FileMode.fromBits(modes[i]), GitObject(repo, ObjectId.fromRaw(ids, i * Constants.OBJECT_ID_LENGTH)), RawParseUtils.decode(names, nameStart, nameEnds[i]))
+                }
+                nameStart = nameEnds[i]
+            }
+            return null
+        }
+    }
+
+    companion object {
+        private val log: Logger = Loggers.git
+        private const val OVERHEAD: Int = 64
+        const val DEFAULT_SIZE_MB: Int = 64
+
+        @Throws(IOException::class)
+        private fun parse(repo: Repository, treeId: ObjectId): PackedTree {
+            val names = ByteArrayOutputStream()
+            val nameEnds = ArrayList<Int>()
+            val modes = ArrayList<Int>()
+            val ids = ByteArrayOutputStream()
+            val idBuffer = ByteArray(Constants.OBJECT_ID_LENGTH)
+            var nameBuffer = ByteArray(256)
+            val treeParser = CanonicalTreeParser(GitRepository.emptyBytes, ObjectReaders.get(repo), treeId)
+            while (!treeParser.eof()) {
+                val nameLength: Int = treeParser.nameLength
+                if (nameBuffer.size < nameLength) nameBuffer = ByteArray(nameLength)
+                treeParser.getName(nameBuffer, 0)
+                names.write(nameBuffer, 0, nameLength)
+                nameEnds.add(names.size())
+                modes.add(treeParser.entryRawMode)
+                treeParser.entryObjectId.copyRawTo(idBuffer, 0)
+                ids.write(idBuffer)
+                treeParser.next()
+            }
+            return PackedTree(names.toByteArray(), nameEnds.toIntArray(), modes.toIntArray(), ids.toByteArray())
+        }
+    }
+}
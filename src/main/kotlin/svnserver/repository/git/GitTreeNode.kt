@@ -0,0 +1,66 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import org.eclipse.jgit.lib.FileMode
+import org.eclipse.jgit.lib.ObjectId
+import svnserver.repository.VcsSupplier
+import svnserver.repository.git.prop.GitProperty
+import java.io.IOException
+
+/**
+ * Resolved tree node without revision and path binding.
+ *
+ * Directory nodes are shared between revisions and sessions through [GitTreeNodeCache]: node depends only
+ * on tree entry and inherited properties. Directory content is not kept in node, it is read from [GitTreeCache].
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class GitTreeNode(private val repository: GitRepository, val treeEntry: GitTreeEntry, parentProps: Array<GitProperty>) : VcsSupplier<Iterable<GitTreeEntry>> {
+    val rawProperties: Array<GitProperty> = GitProperty.joinProperties(parentProps, treeEntry.fileName, treeEntry.fileMode, repository.collectProperties(treeEntry, this))
+
+    @Throws(IOException::class)
+    override fun get(): Iterable<GitTreeEntry> {
+        return repository.loadTree(treeEntry)
+    }
+
+    @Throws(IOException::class)
+    fun getEntry(name: String): GitTreeEntry? {
+        return repository.findTreeEntry(treeEntry, name)
+    }
+
+    /**
+     * Cache key. Repository and inherited properties are compared by identity: parent nodes are cached too, so the
+     * same parent always passes the same array.
+     */
+    class Key(val repository: GitRepository, treeEntry: GitTreeEntry, private val parentProps: Array<GitProperty>) {
+        private val objectId: ObjectId = treeEntry.objectId.`object`.copy()
+        private val fileName: String = treeEntry.fileName
+        private val fileMode: FileMode = treeEntry.fileMode
+
+        override fun equals(other: Any?): Boolean {
+            if (this === other) return true
+            if (other == null || javaClass != other.javaClass) return false
+            val that = other as Key
+            return repository === that.repository
+                    && objectId == that.objectId
+                    && fileName == that.fileName
+                    && fileMode == that.fileMode
+                    && (parentProps === that.parentProps || (parentProps.isEmpty() && that.parentProps.isEmpty()))
+        }
+
+        override fun hashCode(): Int {
+            var result: Int = System.identityHashCode(repository)
+            result = 31 * result + objectId.hashCode()
+            result = 31 * result + fileName.hashCode()
+            result = 31 * result + fileMode.hashCode()
+            result = 31 * result + (if (parentProps.isEmpty()) 0 else System.identityHashCode(parentProps))
+            return result
+        }
+    }
+}
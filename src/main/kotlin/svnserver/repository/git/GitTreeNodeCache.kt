@@ -0,0 +1,61 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheStats
+import org.slf4j.Logger
+import svnserver.Loggers
+import svnserver.context.Shared
+import svnserver.repository.git.prop.GitProperty
+import java.io.IOException
+
+/**
+ * Resolved directory nodes shared by all repositories and sessions.
+ *
+ * Node keeps only its tree entry and effective properties: directory content is read from [GitTreeCache] on demand.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GitTreeNodeCache(maxSize: Int) : Shared {
+    private val cache: Cache<GitTreeNode.Key, GitTreeNode> = CacheBuilder.newBuilder()
+        .maximumSize(maxSize.toLong())
+        .recordStats()
+        .build()
+
+    val stats: CacheStats
+        get() {
+            return cache.stats()
+        }
+
+    @Throws(IOException::class)
+    internal fun get(repository: GitRepository, treeEntry: GitTreeEntry, parentProps: Array<GitProperty>): GitTreeNode {
+        val key = GitTreeNode.Key(repository, treeEntry, parentProps)
+        val cached: GitTreeNode? = cache.getIfPresent(key)
+        if (cached != null) return cached
+        val node = GitTreeNode(repository, treeEntry, parentProps)
+        return cache.asMap().putIfAbsent(key, node) ?: node
+    }
+
+    /**
+     * Drop nodes of closed repository.
+     */
+    internal fun invalidate(repository: GitRepository) {
+        cache.asMap().keys.removeIf { key -> key.repository === repository }
+    }
+
+    override fun close() {
+        log.info("Tree node cache statistics: {}, size: {} nodes", stats, cache.size())
+    }
+
+    companion object {
+        private val log: Logger = Loggers.git
+        const val DEFAULT_SIZE: Int = 65536
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Branch indexing progress, reported to log.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class IndexingProgress(val stage: String, val total: Int) {
+    private val startTime: Long = System.nanoTime()
+
+    var processed: Int = 0
+        private set
+
+    fun increment() {
+        processed++
+    }
+
+    val elapsedMillis: Long
+        get() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+        }
+
+    /**
+     * Average throughput since stage start.
+     */
+    val revisionsPerSecond: Double
+        get() {
+            val elapsed: Long = elapsedMillis
+            return if (elapsed <= 0) 0.0 else 1000.0 * processed / elapsed
+        }
+
+    /**
+     * Estimated time to stage end or -1 if unknown.
+     */
+    val etaMillis: Long
+        get() {
+            val done: Int = processed
+            if (done == 0) return -1
+            return elapsedMillis * (total - done) / done
+        }
+
+    override fun toString(): String {
+        val eta: Long = etaMillis
+        return String.format(
+            "%s %d/%d (%.1f rev/sec, ETA %s)", stage, processed, total, revisionsPerSecond,
+            if (eta < 0) "unknown" else TimeUnit.MILLISECONDS.toSeconds(eta).toString() + "s"
+        )
+    }
+}
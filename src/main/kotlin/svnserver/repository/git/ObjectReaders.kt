@@ -0,0 +1,74 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import org.eclipse.jgit.lib.ObjectReader
+import org.eclipse.jgit.lib.Repository
+
+/**
+ * Per-thread object readers.
+ *
+ * Creating reader for every object lookup throws away its inflater and pinned pack window, so readers are reused by
+ * thread (session thread or worker). Only few recently used repositories are kept per thread, evicted readers are
+ * closed.
+ *
+ * Returned reader is owned by the pool and must not be closed or passed to another thread. Session threads release
+ * their readers on disconnect, worker threads run wrapped with [releasing] and release them on exit.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal object ObjectReaders {
+    private const val READERS_PER_THREAD: Int = 4
+    private val readers: ThreadLocal<ArrayList<Entry>> = ThreadLocal.withInitial { ArrayList<Entry>(READERS_PER_THREAD) }
+
+    fun get(repo: Repository): ObjectReader {
+        val list: ArrayList<Entry> = readers.get()
+        for (i in list.indices) {
+            val entry: Entry = list[i]
+            if (entry.repo === repo) {
+                if (i > 0) {
+                    list.removeAt(i)
+                    list.add(0, entry)
+                }
+                return entry.reader
+            }
+        }
+        if (list.size >= READERS_PER_THREAD) {
+            list.removeAt(list.size - 1).reader.close()
+        }
+        val entry = Entry(repo, repo.newObjectReader())
+        list.add(0, entry)
+        return entry.reader
+    }
+
+    /**
+     * Close and forget readers of current thread. Called when session thread finishes serving connection.
+     */
+    fun release() {
+        val list: ArrayList<Entry> = readers.get()
+        for (entry in list) {
+            entry.reader.close()
+        }
+        readers.remove()
+    }
+
+    /**
+     * Wrap thread body, so readers of the thread are released when it exits. Pool threads exit on pool shutdown.
+     */
+    fun releasing(task: Runnable): Runnable {
+        return Runnable {
+            try {
+                task.run()
+            } finally {
+                release()
+            }
+        }
+    }
+
+    private class Entry(val repo: Repository, val reader: ObjectReader)
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Path to changed revisions index.
+ *
+ * Every path has sorted primitive postings list: revision number shifted left by one bit with removal flag in
+ * lowest bit. Removal revisions are additionally kept in separate list, so next removal is found without scanning
+ * modifications. Single writer appends revisions in ascending order, readers don't take any locks.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class PathRevisionIndex {
+    private val postings = ConcurrentHashMap<String, Postings>()
+    private val removals = ConcurrentHashMap<String, Postings>()
+
+    /**
+     * Register path change. Must be called with ascending revisions from single thread.
+     */
+    fun add(path: String, revision: Int, removed: Boolean) {
+        postings.computeIfAbsent(path) { Postings() }.add(encode(revision, removed))
+        if (removed) {
+            removals.computeIfAbsent(path) { Postings() }.add(revision)
+        }
+    }
+
+    /**
+     * Find last revision before (or equal to) given revision, when path was changed.
+     *
+     * @return Revision number or null if path was removed or not yet created.
+     */
+    fun getLastChange(path: String, beforeRevision: Int): Int? {
+        val list: Postings = postings[path] ?: return null
+        val value: Int = list.floor(encode(beforeRevision, true))
+        if (value < 0 || (value and 1) != 0) {
+            return null
+        }
+        return value ushr 1
+    }
+
+    /**
+     * Find first revision after given revision, when path was removed.
+     *
+     * @return Revision number or null if path was not removed after given revision.
+     */
+    fun getNextRemoval(path: String, afterRevision: Int): Int? {
+        val list: Postings = removals[path] ?: return null
+        val value: Int = list.ceiling(afterRevision + 1)
+        return if (value < 0) null else value
+    }
+
+    fun clear() {
+        postings.clear()
+        removals.clear()
+    }
+
+    val size: Int
+        get() {
+            return postings.size
+        }
+
+    private class Postings {
+        @Volatile
+        private var data: IntArray = EMPTY
+
+        @Volatile
+        private var count: Int = 0
+
+        fun add(value: Int) {
+            val size: Int = count
+            var array: IntArray = data
+            if (size == array.size) {
+                array = Arrays.copyOf(array, if (size == 0) 1 else size * 2)
+            }
+            array[size] = value
+            data = array
+            count = size + 1
+        }
+
+        /**
+         * @return Greatest value less than or equal to key or -1.
+         */
+        fun floor(key: Int): Int {
+            // Size is published after data, so data snapshot always has at least size items.
+            val size: Int = count
+            val array: IntArray = data
+            val index: Int = Arrays.binarySearch(array, 0, size, key)
+            if (index >= 0) return array[index]
+            val insertion: Int = -index - 1
+            return if (insertion == 0) -1 else array[insertion - 1]
+        }
+
+        /**
+         * @return Least value greater than or equal to key or -1.
+         */
+        fun ceiling(key: Int): Int {
+            val size: Int = count
+            val array: IntArray = data
+            val index: Int = Arrays.binarySearch(array, 0, size, key)
+            if (index >= 0) return array[index]
+            val insertion: Int = -index - 1
+            return if (insertion == size) -1 else array[insertion]
+        }
+    }
+
+    companion object {
+        private val EMPTY = IntArray(0)
+
+        private fun encode(revision: Int, removed: Boolean): Int {
+            return (revision shl 1) or (if (removed) 1 else 0)
+        }
+    }
+}
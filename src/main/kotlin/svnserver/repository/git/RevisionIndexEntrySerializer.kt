@@ -0,0 +1,64 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import org.eclipse.jgit.lib.ObjectId
+import org.mapdb.DataInput2
+import org.mapdb.DataOutput2
+import org.mapdb.serializer.GroupSerializerObjectArray
+import svnserver.repository.git.cache.RevisionIndexEntry
+import java.io.IOException
+import java.util.*
+
+/**
+ * Serializer for [RevisionIndexEntry].
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class RevisionIndexEntrySerializer : GroupSerializerObjectArray<RevisionIndexEntry>() {
+    @Throws(IOException::class)
+    override fun serialize(out: DataOutput2, value: RevisionIndexEntry) {
+        ObjectIdSerializer.instance.serialize(out, value.cacheCommitId)
+        val objectId: ObjectId? = value.gitCommitId
+        out.writeBoolean(objectId != null)
+        if (objectId != null) ObjectIdSerializer.instance.serialize(out, objectId)
+        out.writeInt(value.commitTime)
+        out.packInt(value.getRenames().size)
+        for (en: Map.Entry<String, String> in value.getRenames().entries) {
+            STRING.serialize(out, en.key)
+            STRING.serialize(out, en.value)
+        }
+        out.packInt(value.getChanges().size)
+        for (en: Map.Entry<String, Boolean> in value.getChanges().entries) {
+            STRING.serialize(out, en.key)
+            out.writeBoolean(en.value)
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun deserialize(input: DataInput2, available: Int): RevisionIndexEntry {
+        val cacheCommitId: ObjectId = ObjectIdSerializer.instance.deserialize(input, available)
+        val objectId: ObjectId? = if (input.readBoolean()) ObjectIdSerializer.instance.deserialize(input, available) else null
+        val commitTime: Int = input.readInt()
+        val renames = TreeMap<String, String>()
+        val renamesCount: Int = input.unpackInt()
+        for (i in 0 until renamesCount) {
+            renames[STRING.deserialize(input, available)] = STRING.deserialize(input, available)
+        }
+        val changes = TreeMap<String, Boolean>()
+        val changesCount: Int = input.unpackInt()
+        for (i in 0 until changesCount) {
+            changes[STRING.deserialize(input, available)] = input.readBoolean()
+        }
+        return RevisionIndexEntry(cacheCommitId, objectId, commitTime, renames, changes)
+    }
+
+    companion object {
+        val instance: RevisionIndexEntrySerializer = RevisionIndexEntrySerializer()
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.cache
+
+import org.tmatesoft.svn.core.SVNNodeKind
+import svnserver.repository.VcsCopyFrom
+import svnserver.repository.git.GitLogEntry
+import java.io.IOException
+
+/**
+ * Changed path information for log.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class CacheLogChange constructor(
+    val change: Char,
+    val kind: SVNNodeKind,
+    val isContentModified: Boolean,
+    val isPropertyModified: Boolean,
+    val copyFrom: VcsCopyFrom?
+) {
+    companion object {
+        /**
+         * @return Log change or null, if entry was not changed.
+         */
+        @Throws(IOException::class)
+        fun create(logEntry: GitLogEntry): CacheLogChange? {
+            val change: Char = logEntry.change
+            if (change.toInt() == 0) return null
+            return CacheLogChange(change, logEntry.kind, logEntry.isContentModified, logEntry.isPropertyModified, logEntry.copyFrom)
+        }
+    }
+}
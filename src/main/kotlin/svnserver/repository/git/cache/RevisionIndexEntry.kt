@@ -0,0 +1,49 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.cache
+
+import org.eclipse.jgit.lib.ObjectId
+import java.util.*
+
+/**
+ * Persisted branch revision index record.
+ *
+ * Contains everything required to restore revision without reading git objects.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class RevisionIndexEntry constructor(
+    cacheCommitId: ObjectId,
+    gitCommitId: ObjectId?,
+    val commitTime: Int,
+    renames: Map<String, String>,
+    changes: Map<String, Boolean>
+) {
+    val cacheCommitId: ObjectId = cacheCommitId.copy()
+    val gitCommitId: ObjectId? = gitCommitId?.copy()
+    private val renames = TreeMap<String, String>()
+    private val changes = TreeMap<String, Boolean>()
+
+    fun getRenames(): Map<String, String> {
+        return Collections.unmodifiableMap(renames)
+    }
+
+    /**
+     * Changed paths.
+     *
+     * @return Changed path to removal flag map.
+     */
+    fun getChanges(): Map<String, Boolean> {
+        return Collections.unmodifiableMap(changes)
+    }
+
+    init {
+        this.renames.putAll(renames)
+        this.changes.putAll(changes)
+    }
+}
@@ -65,6 +65,15 @@ interface GitFilter {
     @Throws(IOException::class)
     fun inputStream(objectId: GitObject<out ObjectId>): InputStream
 
+    /**
+     * Hint that content of given objects will be requested soon.
+     *
+     * @param objectIds Object references.
+     */
+    @Throws(IOException::class)
+    fun prefetch(objectIds: Collection<GitObject<out ObjectId>>) {
+    }
+
     /**
      * Create stream wrapper for object.
      *
@@ -0,0 +1,225 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.filter
+
+import org.eclipse.jgit.lib.Constants
+import org.eclipse.jgit.lib.ObjectId
+import org.mapdb.DB
+import org.mapdb.HTreeMap
+import org.mapdb.Serializer
+import org.slf4j.Logger
+import svnserver.Loggers
+import svnserver.StringHelper
+import svnserver.context.Shared
+import svnserver.context.SharedContext
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Persistent cache of filtered blob metadata: md5, size and binary flag.
+ *
+ * Every (filter, blob) pair is stored as single record with binary key (filter id byte and raw object id) and
+ * binary value (flags, raw md5 and varint size). Caches of older layout (hex string keys, separate map per value)
+ * are migrated on first use.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GitFilterCache private constructor(private val db: DB) : Shared {
+    private val records: HTreeMap<ByteArray, ByteArray> = db.hashMap("cache.filter.records", Serializer.BYTE_ARRAY, Serializer.BYTE_ARRAY).createOrOpen()
+    private val filterIds: HTreeMap<String, Int> = db.hashMap("cache.filter.ids", Serializer.STRING, Serializer.INTEGER).createOrOpen()
+    private val filters = ConcurrentHashMap<String, Filter>()
+
+    fun getFilter(filterName: String): Filter {
+        return filters[filterName] ?: synchronized(db) {
+            filters.getOrPut(filterName) {
+                val filter = Filter(allocateFilterId(filterName))
+                migrateFilter(filterName, filter)
+                filter
+            }
+        }
+    }
+
+    private fun allocateFilterId(filterName: String): Byte {
+        var id: Int? = filterIds[filterName]
+        if (id == null) {
+            id = filterIds.size
+            if (id > 0xFF) throw IllegalStateException("Too many filters in cache: $filterName")
+            filterIds[filterName] = id
+        }
+        return id.toByte()
+    }
+
+    private fun migrateFilter(filterName: String, filter: Filter) {
+        val md5Name = "cache.filter.$filterName.md5"
+        val sizeName = "cache.filter.$filterName.size"
+        var migrated = 0
+        if (db.exists(md5Name)) {
+            val legacy: HTreeMap<String, String> = db.hashMap(md5Name, Serializer.STRING, Serializer.STRING).createOrOpen()
+            for ((key, value) in legacy) {
+                filter.update(ObjectId.fromString(key), md5 = parseHex(value))
+                migrated++
+            }
+            legacy.clear()
+        }
+        if (db.exists(sizeName)) {
+            val legacy: HTreeMap<String, Long> = db.hashMap(sizeName, Serializer.STRING, Serializer.LONG).createOrOpen()
+            for ((key, value) in legacy) {
+                filter.update(ObjectId.fromString(key), size = value)
+                migrated++
+            }
+            legacy.clear()
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} cached entries of filter {}", migrated, filterName)
+            db.commit()
+        }
+    }
+
+    private fun migrateBinaryCache() {
+        if (!db.exists(LEGACY_BINARY_CACHE)) return
+        val legacy: HTreeMap<String, Boolean> = db.hashMap(LEGACY_BINARY_CACHE, Serializer.STRING, Serializer.BOOLEAN).createOrOpen()
+        var migrated = 0
+        for ((key, value) in legacy) {
+            val separator: Int = key.lastIndexOf(' ')
+            if (separator < 0) continue
+            getFilter(key.substring(0, separator)).update(ObjectId.fromString(key.substring(separator + 1)), binary = value)
+            migrated++
+        }
+        legacy.clear()
+        if (migrated > 0) {
+            log.info("Migrated {} cached binary flags", migrated)
+            db.commit()
+        }
+    }
+
+    /**
+     * Cached metadata of single filter.
+     */
+    inner class Filter internal constructor(private val id: Byte) {
+        fun getMd5(objectId: ObjectId): String? {
+            return load(objectId)?.md5?.let { md5 -> StringHelper.toHex(md5) }
+        }
+
+        fun getSize(objectId: ObjectId): Long? {
+            return load(objectId)?.size
+        }
+
+        fun isBinary(objectId: ObjectId): Boolean? {
+            return load(objectId)?.binary
+        }
+
+        fun putMetadata(objectId: ObjectId, md5: ByteArray, size: Long) {
+            update(objectId, md5 = md5, size = size)
+        }
+
+        fun putBinary(objectId: ObjectId, binary: Boolean) {
+            update(objectId, binary = binary)
+        }
+
+        private fun load(objectId: ObjectId): Record? {
+            return records[key(objectId)]?.let { value -> Record.decode(value) }
+        }
+
+        internal fun update(objectId: ObjectId, md5: ByteArray? = null, size: Long? = null, binary: Boolean? = null) {
+            val key: ByteArray = key(objectId)
+            while (true) {
+                val oldValue: ByteArray? = records[key]
+                val old: Record? = oldValue?.let { value -> Record.decode(value) }
+                val newValue: ByteArray = Record(md5 ?: old?.md5, size ?: old?.size, binary ?: old?.binary).encode()
+                if (oldValue == null) {
+                    if (records.putIfAbsent(key, newValue) == null) return
+                } else {
+                    if (oldValue.contentEquals(newValue) || records.replace(key, oldValue, newValue)) return
+                }
+            }
+        }
+
+        private fun key(objectId: ObjectId): ByteArray {
+            val key = ByteArray(1 + Constants.OBJECT_ID_LENGTH)
+            key[0] = id
+            objectId.copyRawTo(key, 1)
+            return key
+        }
+    }
+
+    private class Record(val md5: ByteArray?, val size: Long?, val binary: Boolean?) {
+        fun encode(): ByteArray {
+            val stream = ByteArrayOutputStream(1 + MD5_LENGTH + 10)
+            var flags = 0
+            if (md5 != null) flags = flags or FLAG_MD5
+            if (size != null) flags = flags or FLAG_SIZE
+            if (binary != null) flags = flags or FLAG_BINARY_KNOWN
+            if (binary == true) flags = flags or FLAG_BINARY
+            stream.write(flags)
+            if (md5 != null) stream.write(md5, 0, MD5_LENGTH)
+            if (size != null) {
+                var value: Long = size
+                while (value and 0x7FL.inv() != 0L) {
+                    stream.write(((value and 0x7FL) or 0x80L).toInt())
+                    value = value ushr 7
+                }
+                stream.write(value.toInt())
+            }
+            return stream.toByteArray()
+        }
+
+        companion object {
+            fun decode(data: ByteArray): Record {
+                val flags: Int = data[0].toInt()
+                var offset = 1
+                var md5: ByteArray? = null
+                if (flags and FLAG_MD5 != 0) {
+                    md5 = data.copyOfRange(offset, offset + MD5_LENGTH)
+                    offset += MD5_LENGTH
+                }
+                var size: Long? = null
+                if (flags and FLAG_SIZE != 0) {
+                    var value = 0L
+                    var shift = 0
+                    while (true) {
+                        val b: Int = data[offset++].toInt()
+                        value = value or ((b and 0x7F).toLong() shl shift)
+                        if (b and 0x80 == 0) break
+                        shift += 7
+                    }
+                    size = value
+                }
+                val binary: Boolean? = if (flags and FLAG_BINARY_KNOWN != 0) flags and FLAG_BINARY != 0 else null
+                return Record(md5, size, binary)
+            }
+        }
+    }
+
+    companion object {
+        private val log: Logger = Loggers.git
+        private const val LEGACY_BINARY_CACHE: String = "cache.binary"
+        private const val MD5_LENGTH: Int = 16
+        private const val FLAG_MD5: Int = 0x01
+        private const val FLAG_SIZE: Int = 0x02
+        private const val FLAG_BINARY_KNOWN: Int = 0x04
+        private const val FLAG_BINARY: Int = 0x08
+
+        fun get(context: SharedContext): GitFilterCache {
+            return context.getOrCreate(GitFilterCache::class.java) {
+                val cache = GitFilterCache(context.cacheDB)
+                synchronized(context.cacheDB) {
+                    cache.migrateBinaryCache()
+                }
+                cache
+            }
+        }
+
+        private fun parseHex(value: String): ByteArray {
+            val result = ByteArray(value.length / 2)
+            for (i in result.indices) {
+                result[i] = ((Character.digit(value[i * 2], 16) shl 4) or Character.digit(value[i * 2 + 1], 16)).toByte()
+            }
+            return result
+        }
+    }
+}
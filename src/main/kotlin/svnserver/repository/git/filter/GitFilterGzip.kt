@@ -23,8 +23,7 @@ import java.util.zip.GZIPOutputStream
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
 class GitFilterGzip constructor(context: LocalContext) : GitFilter {
-    private val cacheMd5: MutableMap<String, String>
-    private val cacheSize: MutableMap<String, Long>
+    private val cache: GitFilterCache.Filter
     override val name: String
         get() {
             return "gzip"
@@ -32,12 +31,12 @@ class GitFilterGzip constructor(context: LocalContext) : GitFilter {
 
     @Throws(IOException::class)
     override fun getMd5(objectId: GitObject<out ObjectId>): String {
-        return GitFilterHelper.getMd5(this, cacheMd5, cacheSize, objectId)
+        return GitFilterHelper.getMd5(this, cache, objectId)
     }
 
     @Throws(IOException::class)
     override fun getSize(objectId: GitObject<out ObjectId>): Long {
-        return GitFilterHelper.getSize(this, cacheMd5, cacheSize, objectId)
+        return GitFilterHelper.getSize(this, cache, objectId)
     }
 
     @Throws(IOException::class)
@@ -51,7 +50,6 @@ class GitFilterGzip constructor(context: LocalContext) : GitFilter {
     }
 
     init {
-        cacheMd5 = GitFilterHelper.getCacheMd5(this, context.shared.cacheDB)
-        cacheSize = GitFilterHelper.getCacheSize(this, context.shared.cacheDB)
+        cache = GitFilterHelper.getCache(this, context.shared)
     }
 }
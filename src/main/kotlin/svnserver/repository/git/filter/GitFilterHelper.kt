@@ -8,11 +8,9 @@
 package svnserver.repository.git.filter
 
 import org.eclipse.jgit.lib.ObjectId
-import org.mapdb.DB
-import org.mapdb.HTreeMap
-import org.mapdb.Serializer
 import svnserver.HashHelper
 import svnserver.StringHelper
+import svnserver.context.SharedContext
 import svnserver.repository.git.GitObject
 import java.io.IOException
 import java.security.MessageDigest
@@ -26,54 +24,44 @@ object GitFilterHelper {
     private const val BUFFER_SIZE: Int = 32 * 1024
 
     @Throws(IOException::class)
-    fun getSize(filter: GitFilter, cacheMd5: MutableMap<String, String>, cacheSize: MutableMap<String, Long>, objectId: GitObject<out ObjectId>): Long {
-        val size: Long? = cacheSize[objectId.`object`.name()]
+    fun getSize(filter: GitFilter, cache: GitFilterCache.Filter, objectId: GitObject<out ObjectId>): Long {
+        val size: Long? = cache.getSize(objectId.`object`)
         if (size != null) {
             return size
         }
-        return createMetadata(objectId, filter, cacheMd5, cacheSize).size
+        return createMetadata(objectId, filter, cache).size
     }
 
     @Throws(IOException::class)
-    private fun createMetadata(objectId: GitObject<out ObjectId>, filter: GitFilter, cacheMd5: MutableMap<String, String>?, cacheSize: MutableMap<String, Long>?): Metadata {
+    private fun createMetadata(objectId: GitObject<out ObjectId>, filter: GitFilter, cache: GitFilterCache.Filter): Metadata {
         val buffer = ByteArray(BUFFER_SIZE)
         filter.inputStream(objectId).use { stream ->
-            val digest: MessageDigest? = if (cacheMd5 != null) HashHelper.md5() else null
+            val digest: MessageDigest = HashHelper.md5()
             var totalSize: Long = 0
             while (true) {
                 val bytes: Int = stream.read(buffer)
                 if (bytes <= 0) break
-                digest?.update(buffer, 0, bytes)
+                digest.update(buffer, 0, bytes)
                 totalSize += bytes.toLong()
             }
-            val md5: String?
-            if ((cacheMd5 != null) && (digest != null)) {
-                md5 = StringHelper.toHex(digest.digest())
-                cacheMd5.putIfAbsent(objectId.`object`.name(), md5)
-            } else {
-                md5 = null
-            }
-            cacheSize?.putIfAbsent(objectId.`object`.name(), totalSize)
-            return Metadata(totalSize, md5)
+            val md5: ByteArray = digest.digest()
+            cache.putMetadata(objectId.`object`, md5, totalSize)
+            return Metadata(totalSize, StringHelper.toHex(md5))
         }
     }
 
     @Throws(IOException::class)
-    fun getMd5(filter: GitFilter, cacheMd5: MutableMap<String, String>, cacheSize: MutableMap<String, Long>?, objectId: GitObject<out ObjectId>): String {
-        val md5: String? = cacheMd5[objectId.`object`.name()]
+    fun getMd5(filter: GitFilter, cache: GitFilterCache.Filter, objectId: GitObject<out ObjectId>): String {
+        val md5: String? = cache.getMd5(objectId.`object`)
         if (md5 != null) {
             return md5
         }
-        return (createMetadata(objectId, filter, cacheMd5, cacheSize).md5)!!
-    }
-
-    fun getCacheMd5(filter: GitFilter, cacheDb: DB): HTreeMap<String, String> {
-        return cacheDb.hashMap("cache.filter." + filter.name + ".md5", Serializer.STRING, Serializer.STRING).createOrOpen()
+        return createMetadata(objectId, filter, cache).md5
     }
 
-    fun getCacheSize(filter: GitFilter, cacheDb: DB): HTreeMap<String, Long> {
-        return cacheDb.hashMap("cache.filter." + filter.name + ".size", Serializer.STRING, Serializer.LONG).createOrOpen()
+    fun getCache(filter: GitFilter, context: SharedContext): GitFilterCache.Filter {
+        return GitFilterCache.get(context).getFilter(filter.name)
     }
 
-    private class Metadata(val size: Long, val md5: String?)
+    private class Metadata(val size: Long, val md5: String)
 }
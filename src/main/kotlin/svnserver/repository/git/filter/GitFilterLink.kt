@@ -9,10 +9,10 @@ package svnserver.repository.git.filter
 
 import org.eclipse.jgit.lib.Constants
 import org.eclipse.jgit.lib.ObjectId
-import org.eclipse.jgit.lib.ObjectReader
 import svnserver.auth.User
 import svnserver.context.LocalContext
 import svnserver.repository.git.GitObject
+import svnserver.repository.git.ObjectReaders
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
@@ -26,7 +26,7 @@ import kotlin.math.min
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
 class GitFilterLink constructor(context: LocalContext) : GitFilter {
-    private val cacheMd5: MutableMap<String, String>
+    private val cache: GitFilterCache.Filter
     override val name: String
         get() {
             return "link"
@@ -34,13 +34,12 @@ class GitFilterLink constructor(context: LocalContext) : GitFilter {
 
     @Throws(IOException::class)
     override fun getMd5(objectId: GitObject<out ObjectId>): String {
-        return GitFilterHelper.getMd5(this, cacheMd5, null, objectId)
+        return GitFilterHelper.getMd5(this, cache, objectId)
     }
 
     @Throws(IOException::class)
     override fun getSize(objectId: GitObject<out ObjectId>): Long {
-        val reader: ObjectReader = objectId.repo.newObjectReader()
-        return reader.getObjectSize(objectId.`object`, Constants.OBJ_BLOB) + LINK_PREFIX.size
+        return ObjectReaders.get(objectId.repo).getObjectSize(objectId.`object`, Constants.OBJ_BLOB) + LINK_PREFIX.size
     }
 
     @Throws(IOException::class)
@@ -134,6 +133,6 @@ class GitFilterLink constructor(context: LocalContext) : GitFilter {
     }
 
     init {
-        cacheMd5 = GitFilterHelper.getCacheMd5(this, context.shared.cacheDB)
+        cache = GitFilterHelper.getCache(this, context.shared)
     }
 }
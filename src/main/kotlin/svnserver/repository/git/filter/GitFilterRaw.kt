@@ -10,10 +10,10 @@ package svnserver.repository.git.filter
 import org.eclipse.jgit.lib.Constants
 import org.eclipse.jgit.lib.ObjectId
 import org.eclipse.jgit.lib.ObjectLoader
-import org.eclipse.jgit.lib.ObjectReader
 import svnserver.auth.User
 import svnserver.context.LocalContext
 import svnserver.repository.git.GitObject
+import svnserver.repository.git.ObjectReaders
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
@@ -24,7 +24,7 @@ import java.io.OutputStream
  * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
  */
 class GitFilterRaw constructor(context: LocalContext) : GitFilter {
-    private val cacheMd5: MutableMap<String, String>
+    private val cache: GitFilterCache.Filter
     override val name: String
         get() {
             return "raw"
@@ -32,13 +32,12 @@ class GitFilterRaw constructor(context: LocalContext) : GitFilter {
 
     @Throws(IOException::class)
     override fun getMd5(objectId: GitObject<out ObjectId>): String {
-        return GitFilterHelper.getMd5(this, cacheMd5, null, objectId)
+        return GitFilterHelper.getMd5(this, cache, objectId)
     }
 
     @Throws(IOException::class)
     override fun getSize(objectId: GitObject<out ObjectId>): Long {
-        val reader: ObjectReader = objectId.repo.newObjectReader()
-        return reader.getObjectSize(objectId.`object`, Constants.OBJ_BLOB)
+        return ObjectReaders.get(objectId.repo).getObjectSize(objectId.`object`, Constants.OBJ_BLOB)
     }
 
     @Throws(IOException::class)
@@ -52,6 +51,6 @@ class GitFilterRaw constructor(context: LocalContext) : GitFilter {
     }
 
     init {
-        cacheMd5 = GitFilterHelper.getCacheMd5(this, context.shared.cacheDB)
+        cache = GitFilterHelper.getCache(this, context.shared)
     }
 }
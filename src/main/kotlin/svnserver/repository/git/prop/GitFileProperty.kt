@@ -38,24 +38,7 @@ internal class GitFileProperty
             if (isDir) {
                 return GitFileProperty(matcherChild, property, value)
             } else if (matcherChild.isMatch) {
-                return object : GitProperty {
-                    override fun apply(props: MutableMap<String, String>) {
-                        if (value != null) {
-                            props.put(property, value)
-                        } else {
-                            props.remove(property)
-                        }
-                    }
-
-                    override val filterName: String?
-                        get() {
-                            return null
-                        }
-
-                    override fun createForChild(name: String, mode: FileMode): GitProperty? {
-                        return null
-                    }
-                }
+                return FileProperty(property, value)
             }
         }
         return null
@@ -76,4 +59,37 @@ internal class GitFileProperty
         }
         return result
     }
+
+    /**
+     * Property of matched file.
+     */
+    private class FileProperty(private val property: String, private val value: String?) : GitProperty {
+        override fun apply(props: MutableMap<String, String>) {
+            if (value != null) {
+                props[property] = value
+            } else {
+                props.remove(property)
+            }
+        }
+
+        override val filterName: String?
+            get() {
+                return null
+            }
+
+        override fun createForChild(name: String, mode: FileMode): GitProperty? {
+            return null
+        }
+
+        override fun equals(other: Any?): Boolean {
+            if (this === other) return true
+            if (other == null || javaClass != other.javaClass) return false
+            val that: FileProperty = other as FileProperty
+            return (property == that.property) && Objects.equals(value, that.value)
+        }
+
+        override fun hashCode(): Int {
+            return 31 * property.hashCode() + (value?.hashCode() ?: 0)
+        }
+    }
 }
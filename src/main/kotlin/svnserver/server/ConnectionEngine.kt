@@ -0,0 +1,68 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server
+
+import org.slf4j.Logger
+import svnserver.Loggers
+import java.util.concurrent.*
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy
+
+/**
+ * Strategy for running client sessions.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+enum class ConnectionEngine {
+    /**
+     * Every session runs on dedicated platform thread.
+     */
+    Threads {
+        override fun createExecutor(threadFactory: ThreadFactory, namePrefix: String): ExecutorService {
+            return ThreadPoolExecutor(
+                0, Int.MAX_VALUE,
+                60,
+                TimeUnit.SECONDS,
+                SynchronousQueue(),
+                threadFactory,
+                AbortPolicy()
+            )
+        }
+    },
+
+    /**
+     * Every session runs on virtual thread, so idle sessions don't pin platform threads.
+     * Requires Java 21+, on older JVM falls back to [Threads].
+     */
+    VirtualThreads {
+        override fun createExecutor(threadFactory: ThreadFactory, namePrefix: String): ExecutorService {
+            return try {
+                // Thread.ofVirtual().name(namePrefix, 1).factory()
+                val builder: Any = Thread::class.java.getMethod("ofVirtual").invoke(null)
+                val builderClass: Class<*> = Class.forName("java.lang.Thread\$Builder")
+                val named: Any = builderClass.getMethod("name", String::class.java, Long::class.javaPrimitiveType).invoke(builder, namePrefix, 1L)
+                val factory = builderClass.getMethod("factory").invoke(named) as ThreadFactory
+                Executors::class.java.getMethod("newThreadPerTaskExecutor", ThreadFactory::class.java).invoke(null, factory) as ExecutorService
+            } catch (e: ReflectiveOperationException) {
+                log.warn("Virtual threads are not supported by Java {}, falling back to {}", System.getProperty("java.version"), Threads)
+                Threads.createExecutor(threadFactory, namePrefix)
+            }
+        }
+    };
+
+    /**
+     * Create session executor.
+     *
+     * @param threadFactory Factory for platform threads.
+     * @param namePrefix    Thread name prefix for engines that create threads on their own.
+     */
+    abstract fun createExecutor(threadFactory: ThreadFactory, namePrefix: String): ExecutorService
+
+    companion object {
+        private val log: Logger = Loggers.svn
+    }
+}
@@ -23,6 +23,11 @@ import svnserver.repository.VcsAccess
 import svnserver.repository.git.GitBranch
 import svnserver.repository.git.GitFile
 import svnserver.server.command.BaseCmd
+import svnserver.server.command.CompressionPolicy
+import svnserver.server.command.DeltaCache
+import svnserver.server.command.DeltaWindowBuffer
+import svnserver.server.command.FilePrefetcher
+import svnserver.server.command.ReplayPrefetcher
 import svnserver.server.msg.ClientInfo
 import svnserver.server.step.Step
 import java.io.IOException
@@ -38,7 +43,7 @@ class SessionContext constructor(
     val writer: SvnServerWriter,
     private val server: SvnServer,
     repositoryInfo: RepositoryInfo,
-    clientInfo: ClientInfo
+    private val clientInfo: ClientInfo
 ) {
     private val stepStack: Deque<Step> = ArrayDeque()
     private val repositoryInfo: RepositoryInfo
@@ -47,6 +52,11 @@ class SessionContext constructor(
     var user: User
         private set
     private var parent: String? = null
+
+    /**
+     * Session context this context was forked from.
+     */
+    private var origin: SessionContext? = null
     val branch: GitBranch
         get() {
             return repositoryInfo.branch
@@ -86,6 +96,58 @@ class SessionContext constructor(
             return SVNDeltaCompression.None
         }
 
+    /**
+     * Create file content prefetcher for report.
+     *
+     * @return Prefetcher or null, if prefetching is disabled.
+     */
+    internal fun createFilePrefetcher(textDeltas: Boolean): FilePrefetcher? {
+        // Forked context already runs on worker thread.
+        if (origin != null) return null
+        val executor = server.prefetchExecutor ?: return null
+        return FilePrefetcher(executor, deltaCache, server.prefetchFiles, compressionPolicy, textDeltas)
+    }
+
+    /**
+     * Per-file svndiff compression selection and statistics.
+     */
+    internal val compressionPolicy: CompressionPolicy by lazy { origin?.compressionPolicy ?: CompressionPolicy(compression, server.adaptiveCompression) }
+
+    /**
+     * Create replay-range look-ahead.
+     *
+     * @return Look-ahead or null, if it is disabled.
+     */
+    internal fun createReplayPrefetcher(startRev: Int, endRev: Int, lowRevision: Int, sendDeltas: Boolean): ReplayPrefetcher? {
+        if (origin != null) return null
+        val executor = server.replayExecutor ?: return null
+        val memory = server.replayMemory ?: return null
+        return ReplayPrefetcher(this, executor, server.replayLookAhead, memory, startRev, endRev, lowRevision, sendDeltas)
+    }
+
+    /**
+     * Create context with the same user and session path, which writes to given writer.
+     *
+     * Used for computing editor commands on worker thread.
+     */
+    internal fun fork(writer: SvnServerWriter): SessionContext {
+        val result = SessionContext(parser, writer, server, repositoryInfo, clientInfo)
+        result.user = user
+        result.parent = parent
+        result.origin = this
+        return result
+    }
+
+    /**
+     * Reusable buffer for svndiff windows. Forked context runs on worker thread and uses buffer of that thread.
+     */
+    internal val deltaBuffer: DeltaWindowBuffer by lazy { if (origin != null) DeltaWindowBuffer.forWorker() else DeltaWindowBuffer() }
+
+    internal val deltaCache: DeltaCache?
+        get() {
+            return server.deltaCache
+        }
+
     @Throws(IOException::class, SVNException::class)
     fun authenticate(allowAnonymous: Boolean) {
         if (!user.isAnonymous) throw IllegalStateException()
@@ -97,6 +159,11 @@ class SessionContext constructor(
         return acl.canRead(user, branch.shortBranchName, path)
     }
 
+    @Throws(IOException::class)
+    fun isUniformSubtree(path: String): Boolean {
+        return acl.isUniformSubtree(branch.shortBranchName, path)
+    }
+
     fun getRepositoryPath(localPath: String): String {
         return StringHelper.joinPath(parent!!, localPath)
     }
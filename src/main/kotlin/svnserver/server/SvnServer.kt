@@ -7,6 +7,7 @@
  */
 package svnserver.server
 
+import org.eclipse.jgit.storage.file.WindowCacheStats
 import org.slf4j.Logger
 import org.tmatesoft.svn.core.SVNErrorCode
 import org.tmatesoft.svn.core.SVNErrorMessage
@@ -27,6 +28,9 @@ import svnserver.parser.token.ListBeginToken
 import svnserver.repository.RepositoryInfo
 import svnserver.repository.RepositoryMapping
 import svnserver.repository.git.GitBranch
+import svnserver.repository.git.GitTreeCache
+import svnserver.repository.git.GitTreeNodeCache
+import svnserver.repository.git.ObjectReaders
 import svnserver.server.command.*
 import svnserver.server.msg.AuthReq
 import svnserver.server.msg.ClientInfo
@@ -37,10 +41,10 @@ import java.net.*
 import java.nio.file.Path
 import java.util.*
 import java.util.concurrent.*
-import java.util.concurrent.ThreadPoolExecutor.AbortPolicy
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.max
 
 /**
  * Сервер для предоставления доступа к git-у через протокол subversion.
@@ -54,8 +58,43 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
     private val serverSocket: ServerSocket
     private val stopped: AtomicBoolean = AtomicBoolean(false)
     private val lastSessionId: AtomicLong = AtomicLong()
+    private val flushCount: AtomicLong = AtomicLong()
+    private val flushedBytes: AtomicLong = AtomicLong()
     val sharedContext: SharedContext
-    private val threadPoolExecutor: ThreadPoolExecutor
+    private val threadPoolExecutor: ExecutorService
+
+    /**
+     * Limits concurrent sessions: accept loop waits for free slot instead of spawning unbounded sessions.
+     */
+    private val sessionLimiter: Semaphore?
+
+    /**
+     * Shared worker pool for file content prefetching.
+     */
+    internal val prefetchExecutor: ExecutorService?
+    internal val prefetchFiles: Int
+        get() {
+            return config.prefetchFiles
+        }
+
+    /**
+     * Shared worker pool for replay-range look-ahead.
+     */
+    internal val replayExecutor: ExecutorService?
+    internal val replayLookAhead: Int
+        get() {
+            return config.replayLookAhead
+        }
+
+    /**
+     * Server-wide memory budget for revisions prepared by replay-range look-ahead, in bytes.
+     */
+    internal val replayMemory: Semaphore?
+    internal val adaptiveCompression: Boolean
+        get() {
+            return config.adaptiveCompression
+        }
+    internal val deltaCache: DeltaCache?
     val port: Int
         get() {
             return serverSocket.localPort
@@ -64,10 +103,12 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
     override fun run() {
         log.info("Ready for connections on {}", serverSocket.localSocketAddress)
         while (!stopped.get()) {
+            if (!acquireSessionSlot()) continue
             val client: Socket
             try {
                 client = serverSocket.accept()
             } catch (e: IOException) {
+                sessionLimiter?.release()
                 if (stopped.get()) {
                     log.info("Server stopped")
                     break
@@ -82,7 +123,13 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
                     client.use { clientSocket ->
                         SvnServerWriter(clientSocket.getOutputStream()).use { writer ->
                             log.info("New connection from: {}", client.remoteSocketAddress)
-                            serveClient(clientSocket, writer)
+                            try {
+                                serveClient(clientSocket, writer)
+                            } finally {
+                                flushCount.addAndGet(writer.flushCount)
+                                flushedBytes.addAndGet(writer.flushedBytes)
+                                log.debug("Connection {}: {} bytes sent by {} flushes", client.remoteSocketAddress, writer.flushedBytes, writer.flushCount)
+                            }
                         }
                     }
                 } catch (ignore: EOFException) {
@@ -93,17 +140,31 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
                 } catch (e: IOException) {
                     log.warn("Exception:", e)
                 } finally {
+                    ObjectReaders.release()
                     shutdownConnection(sessionId)
+                    sessionLimiter?.release()
                 }
             }
             try {
                 threadPoolExecutor.execute(task)
             } catch (e: RejectedExecutionException) {
                 shutdownConnection(sessionId)
+                sessionLimiter?.release()
             }
         }
     }
 
+    private fun acquireSessionSlot(): Boolean {
+        val limiter: Semaphore = sessionLimiter ?: return true
+        if (limiter.tryAcquire()) return true
+        log.debug("Session limit reached ({}), waiting for free slot", config.maxSessions)
+        try {
+            return limiter.tryAcquire(SESSION_SLOT_WAIT, TimeUnit.MILLISECONDS)
+        } catch (e: InterruptedException) {
+            return false
+        }
+    }
+
     @Throws(IOException::class, SVNException::class)
     private fun serveClient(socket: Socket, writer: SvnServerWriter) {
         socket.tcpNoDelay = true
@@ -115,6 +176,15 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
         val branch: GitBranch = context.branch
         branch.updateRevisions()
         sendAnnounce(writer, repositoryInfo)
+        try {
+            serveCommands(context, parser, writer)
+        } finally {
+            log.debug("Session compression statistics: {}", context.compressionPolicy)
+        }
+    }
+
+    @Throws(IOException::class, SVNException::class)
+    private fun serveCommands(context: SessionContext, parser: SvnServerParser, writer: SvnServerWriter) {
         while (!isInterrupted) {
             try {
                 val step: Step? = context.poll()
@@ -174,12 +244,14 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
                 .word(svndiff1Capability)
         }
         writer //.word(SVNCapability.COMMIT_REVPROPS.toString())
-            .word(SVNCapability.DEPTH.toString()) //.word(SVNCapability.PARTIAL_REPLAY.toString()) TODO: issue #237
+            .word(SVNCapability.DEPTH.toString())
+            .word(SVNCapability.PARTIAL_REPLAY.toString())
             .word("edit-pipeline")
             .word(SVNCapability.LOG_REVPROPS.toString()) //.word(SVNCapability.EPHEMERAL_PROPS.toString())
             .word(fileRevsReverseCapability)
             .word("absent-entries")
-            .word(SVNCapability.INHERITED_PROPS.toString()) //.word("list") TODO: issue #162
+            .word(SVNCapability.INHERITED_PROPS.toString())
+            .word("list")
         //.word(SVNCapability.ATOMIC_REVPROPS.toString())
         writer
             .listEnd()
@@ -253,6 +325,14 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
             forceShutdown()
         }
         join(millis)
+        prefetchExecutor?.shutdownNow()
+        replayExecutor?.shutdownNow()
+        log.info("Network statistics: {} bytes sent by {} flushes ({} bytes per flush)", flushedBytes.get(), flushCount.get(), flushedBytes.get() / max(1L, flushCount.get()))
+        val packStats: WindowCacheStats = WindowCacheStats.getStats()
+        log.info(
+            "Pack cache statistics: {} hits, {} misses, {} evictions, {} open files, {} open bytes",
+            packStats.hitCount, packStats.missCount, packStats.evictionCount, packStats.openFileCount, packStats.openByteCount
+        )
         sharedContext.close()
         log.info("Server shutdown complete")
     }
@@ -314,9 +394,9 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
             "get-locks" to GetLocksCmd(),
             "replay" to ReplayCmd(),
             "replay-range" to ReplayRangeCmd(),
-            // get-deleted-rev
+            "get-deleted-rev" to GetDeletedRevCmd(),
             "get-iprops" to GetIPropsCmd(),
-            // TODO: list (#162)
+            "list" to ListCmd(),
         )
 
         /**
@@ -325,10 +405,12 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
         private const val fileRevsReverseCapability: String = "file-revs-reverse"
         private val log: Logger = Loggers.svn
         private val FORCE_SHUTDOWN: Long = TimeUnit.SECONDS.toMillis(5)
+        private val SESSION_SLOT_WAIT: Long = TimeUnit.SECONDS.toMillis(1)
         private val WARNING_CODES = setOf(
             SVNErrorCode.CANCELLED,
             SVNErrorCode.ENTRY_NOT_FOUND,
             SVNErrorCode.FS_NOT_FOUND,
+            SVNErrorCode.ENTRY_MISSING_REVISION,
             SVNErrorCode.RA_NOT_AUTHORIZED,
             SVNErrorCode.REPOS_HOOK_FAILURE,
             SVNErrorCode.WC_NOT_UP_TO_DATE,
@@ -339,6 +421,8 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
             SVNErrorCode.AUTHZ_UNWRITABLE
         )
         private val threadNumber: AtomicInteger = AtomicInteger(1)
+        private val prefetchThreadNumber: AtomicInteger = AtomicInteger(1)
+        private val replayThreadNumber: AtomicInteger = AtomicInteger(1)
 
         @Throws(IOException::class)
         private fun sendError(writer: SvnServerWriter, msg: String) {
@@ -355,21 +439,46 @@ class SvnServer constructor(basePath: Path, config: Config) : Thread("SvnServer"
     init {
         isDaemon = true
         this.config = config
+        for (command in commands.values) {
+            MessageParser.prepare(command.arguments)
+        }
         val threadFactory = ThreadFactory { r: Runnable? ->
             val thread = Thread(r, String.format("SvnServer-thread-%s", threadNumber.incrementAndGet()))
             thread.isDaemon = true
             thread
         }
-        threadPoolExecutor = ThreadPoolExecutor(
-            0, Int.MAX_VALUE,
-            60,
-            TimeUnit.SECONDS,
-            SynchronousQueue(),
-            threadFactory,
-            AbortPolicy()
-        )
+        threadPoolExecutor = config.connectionEngine.createExecutor(threadFactory, "SvnServer-thread-")
+        sessionLimiter = if (config.maxSessions > 0) Semaphore(config.maxSessions) else null
+        prefetchExecutor = if (config.prefetchFiles > 0) {
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), ThreadFactory { r: Runnable? ->
+                val thread = Thread(ObjectReaders.releasing(r!!), String.format("SvnServer-prefetch-%s", prefetchThreadNumber.getAndIncrement()))
+                thread.isDaemon = true
+                thread
+            })
+        } else {
+            null
+        }
+        replayExecutor = if (config.replayLookAhead > 0) {
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), ThreadFactory { r: Runnable? ->
+                val thread = Thread(ObjectReaders.releasing(r!!), String.format("SvnServer-replay-%s", replayThreadNumber.getAndIncrement()))
+                thread.isDaemon = true
+                thread
+            })
+        } else {
+            null
+        }
+        replayMemory = if (config.replayLookAhead > 0) {
+            Semaphore((config.replayLookAheadMemoryMb * 1024L * 1024L).coerceAtMost(Int.MAX_VALUE.toLong()).toInt())
+        } else {
+            null
+        }
+        config.storage.install()
         sharedContext = SharedContext.create(basePath, config.realm, config.cacheConfig.createCache(basePath), config.shared)
+        deltaCache = if (config.deltaCacheSize > 0) DeltaCache(sharedContext.cacheDB, config.deltaCacheSize) else null
+        if (deltaCache != null) sharedContext.add(DeltaCache::class.java, deltaCache)
         sharedContext.add(UserDB::class.java, config.userDB.create(sharedContext))
+        sharedContext.add(GitTreeCache::class.java, GitTreeCache(config.treeCacheSizeMb))
+        sharedContext.add(GitTreeNodeCache::class.java, GitTreeNodeCache(config.treeNodeCacheSize))
 
         repositoryMapping = config.repositoryMapping.create(sharedContext, config.parallelIndexing)
         sharedContext.add(RepositoryMapping::class.java, repositoryMapping)
@@ -37,7 +37,7 @@ abstract class BaseCmd<T> {
     }
 
     @Throws(IOException::class, SVNException::class)
-    fun process(context: SessionContext, parser: SvnServerParser) {
+    open fun process(context: SessionContext, parser: SvnServerParser) {
         val param: T = MessageParser.parse(arguments, parser)
         parser.readToken(ListEndToken::class.java)
         process(context, param)
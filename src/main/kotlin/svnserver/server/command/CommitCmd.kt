@@ -19,6 +19,7 @@ import svnserver.auth.*
 import svnserver.parser.SvnServerParser
 import svnserver.parser.SvnServerWriter
 import svnserver.parser.token.ListBeginToken
+import svnserver.parser.token.ListEndToken
 import svnserver.repository.VcsConsumer
 import svnserver.repository.git.*
 import svnserver.repository.git.GitWriter.GitCommitBuilder
@@ -267,11 +268,6 @@ class CommitCmd : BaseCmd<Params>() {
             }
         }
 
-        @Throws(SVNException::class)
-        private fun deltaChunk(args: DeltaChunkParams) {
-            getFile(args.token).reader.nextWindow(args.chunk, 0, args.chunk.size, "", getFile(args.token).deltaConsumer)
-        }
-
         @Throws(SVNException::class)
         private fun deltaEnd(args: TokenParams) {
             getFile(args.token).deltaConsumer.textDeltaEnd(null)
@@ -346,6 +342,47 @@ class CommitCmd : BaseCmd<Params>() {
             }
         }
 
+        /**
+         * Streams textdelta-chunk data directly from parser buffer to delta reader, without materializing chunk.
+         *
+         * Like other editor commands, it is covered by permission check of commit command itself.
+         */
+        private inner class DeltaChunkCmd : BaseCmd<DeltaChunkParams>() {
+            override val arguments: Class<out DeltaChunkParams>
+                get() {
+                    return DeltaChunkParams::class.java
+                }
+
+            @Throws(IOException::class, SVNException::class)
+            override fun process(context: SessionContext, parser: SvnServerParser) {
+                parser.readToken(ListBeginToken::class.java)
+                // Command must be read up to the end even on failure, otherwise rest of chunk is parsed as next command.
+                var failure: Exception? = null
+                val file: FileUpdater? = try {
+                    getFile(parser.readText())
+                } catch (e: SVNException) {
+                    failure = e
+                    null
+                }
+                parser.readBinary { data: ByteArray, offset: Int, length: Int ->
+                    if (file != null && failure == null) {
+                        try {
+                            file.reader.nextWindow(data, offset, length, "", file.deltaConsumer)
+                        } catch (e: Exception) {
+                            failure = e
+                        }
+                    }
+                }
+                parser.readToken(ListEndToken::class.java)
+                parser.readToken(ListEndToken::class.java)
+                failure?.let { e -> throw e }
+            }
+
+            override fun processCommand(context: SessionContext, args: DeltaChunkParams) {}
+
+            override fun permissionCheck(context: SessionContext, args: DeltaChunkParams) {}
+        }
+
         @Throws(SVNException::class)
         private fun getFile(token: String): FileUpdater {
             return files[token] ?: throw SVNException(SVNErrorMessage.create(SVNErrorCode.ILLEGAL_TARGET, "Invalid file token: $token"))
@@ -468,7 +505,7 @@ class CommitCmd : BaseCmd<Params>() {
                 "open-file" to LambdaCmd(OpenParams::class.java) { sessionContext: SessionContext, args: OpenParams -> openFile(sessionContext, args) },
                 "close-dir" to LambdaCmd(TokenParams::class.java) { _: SessionContext, args: TokenParams -> closeDir(args) },
                 "close-file" to LambdaCmd(ChecksumParams::class.java) { _: SessionContext, args: ChecksumParams -> closeFile(args) },
-                "textdelta-chunk" to LambdaCmd(DeltaChunkParams::class.java) { _: SessionContext, args: DeltaChunkParams -> deltaChunk(args) },
+                "textdelta-chunk" to DeltaChunkCmd(),
                 "textdelta-end" to LambdaCmd(TokenParams::class.java) { _: SessionContext, args: TokenParams -> deltaEnd(args) },
                 "apply-textdelta" to LambdaCmd(ChecksumParams::class.java) { _: SessionContext, args: ChecksumParams -> deltaApply(args) },
             )
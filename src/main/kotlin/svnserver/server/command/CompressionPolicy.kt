@@ -0,0 +1,136 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import org.tmatesoft.svn.core.SVNProperty
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import svnserver.repository.git.GitFile
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.Deflater
+
+/**
+ * Selects svndiff compression for every sent file.
+ *
+ * In adaptive mode binary files are probed: already compressed content (archives, images, media) is sent without
+ * compression, because compressing it again only burns CPU.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class CompressionPolicy(val compression: SVNDeltaCompression, private val adaptive: Boolean) {
+    private val compressedFiles = AtomicLong()
+    private val uncompressedFiles = AtomicLong()
+    private val rawBytes = AtomicLong()
+    private val encodedBytes = AtomicLong()
+    private val encodeNanos = AtomicLong()
+    private val probeNanos = AtomicLong()
+    private val probes = AtomicLong()
+
+    /**
+     * Number of files probed by compressing their beginning.
+     */
+    val probeCount: Long
+        get() {
+            return probes.get()
+        }
+
+    @Throws(IOException::class)
+    fun select(file: GitFile): SVNDeltaCompression {
+        if (!adaptive || compression == SVNDeltaCompression.None) {
+            return compression
+        }
+        if (isCompressible(file)) {
+            compressedFiles.incrementAndGet()
+            return compression
+        }
+        uncompressedFiles.incrementAndGet()
+        return SVNDeltaCompression.None
+    }
+
+    @Throws(IOException::class)
+    private fun isCompressible(file: GitFile): Boolean {
+        if (file.size < MIN_PROBE_SIZE) return true
+        val mimeType: String? = file.properties[SVNProperty.MIME_TYPE]
+        if (mimeType == null || SVNProperty.isTextMimeType(mimeType)) return true
+        val key: String = file.contentHash
+        val cached: Boolean? = probeCache.getIfPresent(key)
+        if (cached != null) return cached
+        val startTime: Long = System.nanoTime()
+        probes.incrementAndGet()
+        val result: Boolean = probe(file)
+        probeNanos.addAndGet(System.nanoTime() - startTime)
+        probeCache.put(key, result)
+        return result
+    }
+
+    /**
+     * Compress beginning of file with fastest deflate level and check if it actually shrinks.
+     */
+    @Throws(IOException::class)
+    private fun probe(file: GitFile): Boolean {
+        val data = ByteArray(PROBE_SIZE)
+        var size = 0
+        file.openStream().use { stream ->
+            while (size < data.size) {
+                val read: Int = stream.read(data, size, data.size - size)
+                if (read < 0) break
+                size += read
+            }
+        }
+        if (size == 0) return true
+        val deflater = Deflater(Deflater.BEST_SPEED)
+        try {
+            deflater.setInput(data, 0, size)
+            deflater.finish()
+            val output = ByteArray(PROBE_SIZE)
+            var compressed = 0
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(output)
+            }
+            return compressed < size * PROBE_RATIO
+        } finally {
+            deflater.end()
+        }
+    }
+
+    /**
+     * Record encoded svndiff window.
+     *
+     * @param raw     Window size without compression.
+     * @param encoded Encoded window size.
+     * @param nanos   Time spent on encoding.
+     */
+    fun record(raw: Long, encoded: Long, nanos: Long) {
+        rawBytes.addAndGet(raw)
+        encodedBytes.addAndGet(encoded)
+        encodeNanos.addAndGet(nanos)
+    }
+
+    override fun toString(): String {
+        return "CompressionPolicy{compression=$compression" +
+                ", adaptive=$adaptive" +
+                ", compressedFiles=${compressedFiles.get()}" +
+                ", uncompressedFiles=${uncompressedFiles.get()}" +
+                ", rawBytes=${rawBytes.get()}" +
+                ", encodedBytes=${encodedBytes.get()}" +
+                ", encodeMillis=${encodeNanos.get() / 1000000}" +
+                ", probeMillis=${probeNanos.get() / 1000000}" +
+                "}"
+    }
+
+    companion object {
+        private const val MIN_PROBE_SIZE: Long = 4 * 1024
+        private const val PROBE_SIZE: Int = 64 * 1024
+        private const val PROBE_RATIO: Double = 0.9
+        private val probeCache: Cache<String, Boolean> = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build()
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import com.google.common.cache.CacheStats
+import org.mapdb.DB
+import org.mapdb.HTreeMap
+import org.mapdb.Serializer
+import org.slf4j.Logger
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import svnserver.Loggers
+import svnserver.context.Shared
+import svnserver.repository.git.GitFile
+import java.io.*
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Persistent cache for encoded svndiff windows.
+ *
+ * Many working copies update between the same pair of revisions, so the same delta is requested again and again.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class DeltaCache(db: DB, maxEntries: Long) : Shared {
+    private val cache: HTreeMap<String, ByteArray> = db.hashMap("cache.delta", Serializer.STRING, Serializer.BYTE_ARRAY)
+        .expireMaxSize(maxEntries)
+        .expireAfterCreate()
+        .expireAfterGet()
+        .createOrOpen()
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    val stats: CacheStats
+        get() {
+            return CacheStats(hits.get(), misses.get(), 0, 0, 0, 0)
+        }
+
+    @Throws(IOException::class)
+    fun get(key: String): List<ByteArray>? {
+        val packed: ByteArray? = cache[key]
+        if (packed == null) {
+            misses.incrementAndGet()
+            return null
+        }
+        hits.incrementAndGet()
+        DataInputStream(ByteArrayInputStream(packed)).use { stream ->
+            val count: Int = stream.readInt()
+            val result = ArrayList<ByteArray>(count)
+            for (i in 0 until count) {
+                val window = ByteArray(stream.readInt())
+                stream.readFully(window)
+                result.add(window)
+            }
+            return result
+        }
+    }
+
+    @Throws(IOException::class)
+    fun put(key: String, windows: List<ByteArray>) {
+        val buffer = ByteArrayOutputStream()
+        DataOutputStream(buffer).use { stream ->
+            stream.writeInt(windows.size)
+            for (window in windows) {
+                stream.writeInt(window.size)
+                stream.write(window)
+            }
+        }
+        cache.putIfAbsent(key, buffer.toByteArray())
+    }
+
+    override fun close() {
+        log.info("Delta cache statistics: {}, size: {} deltas", stats, cache.size)
+    }
+
+    override fun toString(): String {
+        return "DeltaCache{stats=$stats, size=${cache.size}}"
+    }
+
+    companion object {
+        private val log: Logger = Loggers.svn
+
+        /**
+         * Bigger deltas are not cached.
+         */
+        const val MAX_DELTA_SIZE: Int = 256 * 1024
+
+        @Throws(IOException::class)
+        fun key(oldFile: GitFile?, newFile: GitFile, compression: SVNDeltaCompression): String {
+            return compression.name + "\u0000" + (oldFile?.contentHash ?: "") + "\u0000" + newFile.contentHash
+        }
+    }
+}
@@ -7,10 +7,10 @@
  */
 package svnserver.server.command
 
+import org.eclipse.jgit.lib.ObjectId
 import org.slf4j.Logger
 import org.tmatesoft.svn.core.*
 import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
-import org.tmatesoft.svn.core.internal.wc.SVNFileUtil
 import org.tmatesoft.svn.core.io.ISVNDeltaConsumer
 import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator
 import org.tmatesoft.svn.core.io.diff.SVNDiffWindow
@@ -24,9 +24,10 @@ import svnserver.repository.Depth
 import svnserver.repository.SvnForbiddenException
 import svnserver.repository.VcsCopyFrom
 import svnserver.repository.git.GitFile
+import svnserver.repository.git.GitObject
+import svnserver.repository.git.filter.GitFilter
 import svnserver.server.SessionContext
 import svnserver.server.step.CheckPermissionStep
-import java.io.ByteArrayOutputStream
 import java.io.EOFException
 import java.io.IOException
 import java.io.OutputStream
@@ -125,6 +126,7 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
         private val paths = HashMap<String, SetPathParams>()
         private val pathStack = ArrayDeque<HeaderEntry>()
         private var lastTokenId = 0
+        private var prefetcher: FilePrefetcher? = null
 
         @Throws(IOException::class, SVNException::class)
         private fun getWriter(context: SessionContext): SvnServerWriter {
@@ -209,12 +211,14 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
         @Throws(IOException::class, SVNException::class)
         private fun complete(context: SessionContext) {
             val writer: SvnServerWriter = getWriter(context)
-            sendDelta(context)
-            writer
-                .listBegin()
-                .word("close-edit")
-                .listBegin().listEnd()
-                .listEnd()
+            writer.corked {
+                sendDelta(context)
+                writer
+                    .listBegin()
+                    .word("close-edit")
+                    .listBegin().listEnd()
+                    .listEnd()
+            }
             val parser: SvnServerParser = context.parser
             parser.readToken(ListBeginToken::class.java)
             when (val clientStatus: String = parser.readText()) {
@@ -266,6 +270,17 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
 
         @Throws(IOException::class, SVNException::class)
         fun sendDelta(context: SessionContext) {
+            prefetcher = context.createFilePrefetcher(params.textDeltas)
+            try {
+                sendDeltaInternal(context)
+            } finally {
+                prefetcher?.close()
+                prefetcher = null
+            }
+        }
+
+        @Throws(IOException::class, SVNException::class)
+        private fun sendDeltaInternal(context: SessionContext) {
             val path: String = params.path
             val targetRev: Int = params.getRev(context)
             val rootParams: SetPathParams = paths[wcPath("")] ?: throw SVNException(SVNErrorMessage.create(SVNErrorCode.STREAM_MALFORMED_DATA))
@@ -368,6 +383,7 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
                 }
                 removeEntry(context, entryPath, newFile.lastChange.id, tokenId)
             }
+            val updates = ArrayList<EntryUpdate>()
             for (newEntry in newFile.entries) {
                 val entryPath: String = joinPath(wcPath, newEntry.fileName)
                 val oldEntry: GitFile? = getPrevFile(context, entryPath, oldEntries[newEntry.fileName])
@@ -376,10 +392,51 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
                     continue
                 if (action == Depth.Action.Skip) continue
                 val entryDepth: Depth = getWcDepth(entryPath, wcDepth)
-                updateEntry(context, entryPath, if (action == Depth.Action.Upgrade) null else oldEntry, newEntry, tokenId, false, entryDepth, requestedDepth.deepen())
+                updates.add(EntryUpdate(entryPath, if (action == Depth.Action.Upgrade) null else oldEntry, newEntry, entryDepth))
+            }
+            prefetchFilters(updates)
+            for (i in updates.indices) {
+                val update: EntryUpdate = updates[i]
+                if (prefetcher != null && !update.newFile.isDirectory && (i == 0 || updates[i - 1].newFile.isDirectory)) {
+                    schedulePrefetch(context, updates, i)
+                }
+                updateEntry(context, update.wcPath, update.oldFile, update.newFile, tokenId, false, update.wcDepth, requestedDepth.deepen())
+            }
+        }
+
+        /**
+         * Schedule prefetch for files up to next directory: files after it will be taken only after whole subtree is sent.
+         */
+        @Throws(IOException::class)
+        private fun schedulePrefetch(context: SessionContext, updates: List<EntryUpdate>, from: Int) {
+            for (i in from until updates.size) {
+                val update: EntryUpdate = updates[i]
+                if (update.newFile.isDirectory) break
+                if (update.oldFile != null && update.oldFile.kind != update.newFile.kind) continue
+                if (!context.canRead(update.newFile.fullPath)) continue
+                prefetcher!!.schedule(update.oldFile, update.newFile)
+            }
+        }
+
+        /**
+         * Let filters resolve content of directory files in bulk (for example, single LFS batch request instead of request per file).
+         */
+        @Throws(IOException::class)
+        private fun prefetchFilters(updates: List<EntryUpdate>) {
+            val byFilter = HashMap<GitFilter, MutableList<GitObject<out ObjectId>>>()
+            for (update in updates) {
+                if (update.newFile.isDirectory) continue
+                val filter: GitFilter = update.newFile.filter ?: continue
+                val objectId: GitObject<ObjectId> = update.newFile.objectId ?: continue
+                byFilter.computeIfAbsent(filter) { ArrayList() }.add(objectId)
+            }
+            for ((filter, objectIds) in byFilter) {
+                filter.prefetch(objectIds)
             }
         }
 
+        private class EntryUpdate(val wcPath: String, val oldFile: GitFile?, val newFile: GitFile, val wcDepth: Depth)
+
         @Throws(IOException::class, SVNException::class)
         private fun updateProps(context: SessionContext, type: String, tokenId: String, oldFile: GitFile?, newFile: GitFile) {
             val propsDiff = getPropertiesDiff(oldFile, newFile)
@@ -391,8 +448,9 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
 
         @Throws(IOException::class, SVNException::class)
         private fun updateFile(context: SessionContext, wcPath: String, prevFile: GitFile?, newFile: GitFile, parentTokenId: String) {
+            val prefetched: FilePrefetcher.FileDelta? = prefetcher?.take(newFile)
             val tokenId: String = createTokenId()
-            val md5: String = newFile.md5
+            val md5: String = prefetched?.md5 ?: newFile.md5
             sendEntryHeader(context, wcPath, prevFile, newFile, "file", parentTokenId, tokenId) { writer: SvnServerWriter ->
                 writer
                     .listBegin()
@@ -418,40 +476,17 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
                         .listEnd()
                         .listEnd()
                     if (params.textDeltas) {
-                        val deltaGenerator = SVNDeltaGenerator()
-                        (oldFile?.openStream() ?: SVNFileUtil.DUMMY_IN).use { source ->
-                            newFile.openStream().use { target ->
-                                val compression: SVNDeltaCompression = context.compression
-                                val validateMd5: String = deltaGenerator.sendDelta(newFile.fileName, source, 0, target, object : ISVNDeltaConsumer {
-                                    private var writeHeader = true
-                                    override fun applyTextDelta(path: String, baseChecksum: String?) {}
-
-                                    @Throws(SVNException::class)
-                                    override fun textDeltaChunk(path: String, diffWindow: SVNDiffWindow): OutputStream? {
-                                        try {
-                                            ByteArrayOutputStream().use { stream ->
-                                                diffWindow.writeTo(stream, writeHeader, compression)
-                                                writeHeader = false
-                                                writer
-                                                    .listBegin()
-                                                    .word("textdelta-chunk")
-                                                    .listBegin()
-                                                    .string(tokenId)
-                                                    .binary(stream.toByteArray())
-                                                    .listEnd()
-                                                    .listEnd()
-                                            }
-                                            return null
-                                        } catch (e: IOException) {
-                                            throw SVNException(SVNErrorMessage.create(SVNErrorCode.IO_WRITE_ERROR), e)
-                                        }
-                                    }
-
-                                    override fun textDeltaEnd(path: String) {}
-                                }, true)
-                                if (validateMd5 != md5) {
-                                    throw IllegalStateException("MD5 checksum mismatch: some shit happends.")
-                                }
+                        val windows: List<ByteArray>? = if (prefetched != null && prefetched.source === oldFile) prefetched.windows else null
+                        if (windows != null) {
+                            for (window in windows) {
+                                sendDeltaChunk(writer, tokenId, window, 0, window.size)
+                            }
+                        } else {
+                            val validateMd5: String = encodeDelta(context.deltaCache, context.deltaBuffer, oldFile, newFile, context.compressionPolicy) { data: ByteArray, offset: Int, length: Int ->
+                                sendDeltaChunk(writer, tokenId, data, offset, length)
+                            }
+                            if (validateMd5 != md5) {
+                                throw IllegalStateException("MD5 checksum mismatch: some shit happends.")
                             }
                         }
                     }
@@ -467,6 +502,18 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
             }
         }
 
+        @Throws(IOException::class)
+        private fun sendDeltaChunk(writer: SvnServerWriter, tokenId: String, data: ByteArray, offset: Int, length: Int) {
+            writer
+                .listBegin()
+                .word("textdelta-chunk")
+                .listBegin()
+                .string(tokenId)
+                .binary(data, offset, length)
+                .listEnd()
+                .listEnd()
+        }
+
         private fun getWcDepth(wcPath: String, parentWcDepth: Depth): Depth {
             val params: SetPathParams = paths[wcPath] ?: return parentWcDepth.deepen()
             return params.depth
@@ -686,9 +733,92 @@ class DeltaCmd constructor(override val arguments: Class<out DeltaParams>) : Bas
         }
     }
 
+    /**
+     * svndiff window consumer.
+     *
+     * Window data is valid only during call.
+     */
+    internal fun interface WindowConsumer {
+        @Throws(IOException::class)
+        fun accept(data: ByteArray, offset: Int, length: Int)
+    }
+
     companion object {
         private val log: Logger = Loggers.svn
 
+        /**
+         * Generate svndiff windows from old file content to new file content.
+         *
+         * @return New file content md5.
+         */
+        @Throws(IOException::class, SVNException::class)
+        internal fun encodeDelta(
+            cache: DeltaCache?,
+            buffer: DeltaWindowBuffer,
+            oldFile: GitFile?,
+            newFile: GitFile,
+            policy: CompressionPolicy,
+            consumer: WindowConsumer
+        ): String {
+            val compression: SVNDeltaCompression = policy.select(newFile)
+            if (cache == null) {
+                return encodeDelta(buffer, oldFile, newFile, compression, policy, consumer)
+            }
+            val key: String = DeltaCache.key(oldFile, newFile, compression)
+            val cached: List<ByteArray>? = cache.get(key)
+            if (cached != null) {
+                for (window in cached) {
+                    consumer.accept(window, 0, window.size)
+                }
+                return newFile.md5
+            }
+            var windows: MutableList<ByteArray>? = ArrayList()
+            var windowsSize = 0
+            val md5: String = encodeDelta(buffer, oldFile, newFile, compression, policy) { data: ByteArray, offset: Int, length: Int ->
+                consumer.accept(data, offset, length)
+                if (windows != null) {
+                    windowsSize += length
+                    if (windowsSize <= DeltaCache.MAX_DELTA_SIZE) windows!!.add(data.copyOfRange(offset, offset + length)) else windows = null
+                }
+            }
+            if (windows != null) {
+                cache.put(key, windows!!)
+            }
+            return md5
+        }
+
+        @Throws(IOException::class, SVNException::class)
+        private fun encodeDelta(buffer: DeltaWindowBuffer, oldFile: GitFile?, newFile: GitFile, compression: SVNDeltaCompression, policy: CompressionPolicy, consumer: WindowConsumer): String {
+            if (oldFile == null) {
+                newFile.openStream().use { target -> return FulltextEncoder.encode(target, buffer, compression, policy, consumer) }
+            }
+            oldFile.openStream().use { source ->
+                newFile.openStream().use { target ->
+                    return SVNDeltaGenerator().sendDelta(newFile.fileName, source, 0, target, object : ISVNDeltaConsumer {
+                        private var writeHeader = true
+                        override fun applyTextDelta(path: String, baseChecksum: String?) {}
+
+                        @Throws(SVNException::class)
+                        override fun textDeltaChunk(path: String, diffWindow: SVNDiffWindow): OutputStream? {
+                            try {
+                                val startTime: Long = System.nanoTime()
+                                buffer.reset()
+                                diffWindow.writeTo(buffer, writeHeader, compression)
+                                writeHeader = false
+                                policy.record(diffWindow.instructionsLength + diffWindow.newDataLength.toLong(), buffer.size().toLong(), System.nanoTime() - startTime)
+                                consumer.accept(buffer.buffer, 0, buffer.size())
+                                return null
+                            } catch (e: IOException) {
+                                throw SVNException(SVNErrorMessage.create(SVNErrorCode.IO_WRITE_ERROR), e)
+                            }
+                        }
+
+                        override fun textDeltaEnd(path: String) {}
+                    }, true)
+                }
+            }
+        }
+
         @Throws(IOException::class)
         fun getPropertiesDiff(oldFile: GitFile?, newFile: GitFile?): Map<String, String?> {
             val result = TreeMap<String, String?>()
@@ -0,0 +1,42 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import java.io.ByteArrayOutputStream
+
+/**
+ * Reusable buffer for encoding svndiff windows.
+ *
+ * Encoded window is passed to consumer as a slice of internal array, so it is valid only until next window.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class DeltaWindowBuffer : ByteArrayOutputStream(INITIAL_SIZE) {
+    val buffer: ByteArray
+        get() {
+            return buf
+        }
+
+    /**
+     * Reusable source data buffer for [FulltextEncoder].
+     */
+    val fulltext: ByteArray by lazy { ByteArray(FulltextEncoder.DATA_SIZE) }
+
+    companion object {
+        // Enough for default SVNDeltaGenerator window with header.
+        private const val INITIAL_SIZE = 128 * 1024
+        private val workerBuffers: ThreadLocal<DeltaWindowBuffer> = ThreadLocal.withInitial { DeltaWindowBuffer() }
+
+        /**
+         * Buffer owned by current worker thread. Must not be used outside of current task.
+         */
+        fun forWorker(): DeltaWindowBuffer {
+            return workerBuffers.get()
+        }
+    }
+}
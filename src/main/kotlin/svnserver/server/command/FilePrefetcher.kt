@@ -0,0 +1,122 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import svnserver.repository.git.GitFile
+import java.util.*
+import java.util.concurrent.*
+
+/**
+ * Computes file md5 and svndiff windows for report ahead of session thread.
+ *
+ * Files must be taken in the same order as they were scheduled: session thread still writes
+ * editor commands in tree order, it only picks up ready results.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class FilePrefetcher(
+    private val executor: Executor,
+    private val deltaCache: DeltaCache?,
+    private val limit: Int,
+    private val compression: CompressionPolicy,
+    private val textDeltas: Boolean
+) : AutoCloseable {
+    private val pending = ArrayDeque<Task>()
+    private val scheduled: MutableSet<GitFile> = Collections.newSetFromMap(IdentityHashMap())
+
+    fun schedule(oldFile: GitFile?, newFile: GitFile) {
+        if (!scheduled.add(newFile)) return
+        pending.addLast(Task(oldFile, newFile))
+        submit()
+    }
+
+    /**
+     * Take prefetched result for file.
+     *
+     * @return Prefetched result or null, if file must be processed inline.
+     */
+    fun take(newFile: GitFile): FileDelta? {
+        if (!scheduled.remove(newFile)) return null
+        while (true) {
+            val task: Task = pending.pollFirst() ?: return null
+            if (task.newFile !== newFile) {
+                // Skipped by report.
+                scheduled.remove(task.newFile)
+                task.future?.cancel(false)
+                continue
+            }
+            submit()
+            val future: Future<FileDelta> = task.future ?: return null
+            return try {
+                future.get()
+            } catch (e: ExecutionException) {
+                // Let session thread reproduce and report the error.
+                null
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                null
+            }
+        }
+    }
+
+    private fun submit() {
+        var running = 0
+        for (task in pending) {
+            if (running >= limit) break
+            if (task.future == null) {
+                val future = FutureTask<FileDelta>(Callable { task.compute() })
+                task.future = future
+                executor.execute(future)
+            }
+            running++
+        }
+    }
+
+    override fun close() {
+        for (task in pending) {
+            task.future?.cancel(false)
+        }
+        pending.clear()
+        scheduled.clear()
+    }
+
+    /**
+     * Prefetched file data.
+     *
+     * @param md5     Target file md5.
+     * @param source  Delta source file.
+     * @param windows Encoded svndiff windows or null, if delta was not computed.
+     */
+    class FileDelta(val md5: String, val source: GitFile?, val windows: List<ByteArray>?)
+
+    private inner class Task(val oldFile: GitFile?, val newFile: GitFile) {
+        var future: Future<FileDelta>? = null
+
+        fun compute(): FileDelta {
+            val md5: String = newFile.md5
+            if (!textDeltas || (oldFile != null && newFile.contentHash == oldFile.contentHash) || newFile.size > MAX_FILE_SIZE) {
+                return FileDelta(md5, oldFile, null)
+            }
+            val windows = ArrayList<ByteArray>()
+            val validateMd5: String = DeltaCmd.encodeDelta(deltaCache, DeltaWindowBuffer.forWorker(), oldFile, newFile, compression) { data: ByteArray, offset: Int, length: Int ->
+                windows.add(data.copyOfRange(offset, offset + length))
+            }
+            if (validateMd5 != md5) {
+                throw IllegalStateException("MD5 checksum mismatch: some shit happends.")
+            }
+            return FileDelta(md5, oldFile, windows)
+        }
+    }
+
+    companion object {
+        /**
+         * Bigger files are streamed by session thread to keep memory usage bounded.
+         */
+        private const val MAX_FILE_SIZE: Long = 1024 * 1024
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow
+import java.io.IOException
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+
+/**
+ * Encodes file content without delta base as insert-only svndiff windows.
+ *
+ * There is nothing to match against, so content is read straight into window data and md5 is computed on the same pass.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal object FulltextEncoder {
+    /**
+     * Target window size. Subversion clients reject windows bigger than SVN_DELTA_WINDOW_SIZE (100 KiB).
+     */
+    const val WINDOW_SIZE: Int = 100 * 1024
+
+    // Single "copy from new data" instruction takes at most 6 bytes.
+    private const val INSTRUCTION_SIZE: Int = 8
+    const val DATA_SIZE: Int = INSTRUCTION_SIZE + WINDOW_SIZE
+
+    /**
+     * Encode stream content.
+     *
+     * @return Content md5.
+     */
+    @Throws(IOException::class)
+    fun encode(stream: InputStream, buffer: DeltaWindowBuffer, compression: SVNDeltaCompression, policy: CompressionPolicy?, consumer: WindowConsumer): String {
+        val digest: MessageDigest = MessageDigest.getInstance("MD5")
+        val data: ByteArray = buffer.fulltext
+        var writeHeader = true
+        while (true) {
+            var size = 0
+            while (size < WINDOW_SIZE) {
+                val read: Int = stream.read(data, INSTRUCTION_SIZE + size, WINDOW_SIZE - size)
+                if (read < 0) break
+                size += read
+            }
+            if (size == 0 && !writeHeader) break
+            digest.update(data, INSTRUCTION_SIZE, size)
+            val startTime: Long = System.nanoTime()
+            val window: SVNDiffWindow
+            val instructionsLength: Int
+            if (size == 0) {
+                window = SVNDiffWindow.EMPTY
+                instructionsLength = 0
+            } else {
+                instructionsLength = writeInstruction(data, size)
+                window = SVNDiffWindow(0, 0, size, instructionsLength, size)
+                window.setData(ByteBuffer.wrap(data, INSTRUCTION_SIZE - instructionsLength, instructionsLength + size))
+            }
+            buffer.reset()
+            window.writeTo(buffer, writeHeader, compression)
+            writeHeader = false
+            policy?.record((instructionsLength + size).toLong(), buffer.size().toLong(), System.nanoTime() - startTime)
+            consumer.accept(buffer.buffer, 0, buffer.size())
+            if (size < WINDOW_SIZE) break
+        }
+        return SVNFileUtil.toHexDigest(digest)
+    }
+
+    /**
+     * Write "copy from new data" instruction right before window data.
+     *
+     * @return Instruction length.
+     */
+    private fun writeInstruction(data: ByteArray, length: Int): Int {
+        if (length < 0x40) {
+            data[INSTRUCTION_SIZE - 1] = (COPY_FROM_NEW_DATA or length).toByte()
+            return 1
+        }
+        // Instruction code byte with zero length, followed by big-endian base-128 length.
+        var offset: Int = INSTRUCTION_SIZE
+        var value: Int = length
+        data[--offset] = (value and 0x7F).toByte()
+        value = value ushr 7
+        while (value != 0) {
+            data[--offset] = ((value and 0x7F) or 0x80).toByte()
+            value = value ushr 7
+        }
+        data[--offset] = COPY_FROM_NEW_DATA.toByte()
+        return INSTRUCTION_SIZE - offset
+    }
+
+    private const val COPY_FROM_NEW_DATA: Int = 2 shl 6
+}
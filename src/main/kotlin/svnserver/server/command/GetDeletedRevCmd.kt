@@ -0,0 +1,65 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import org.tmatesoft.svn.core.SVNErrorCode
+import org.tmatesoft.svn.core.SVNErrorMessage
+import org.tmatesoft.svn.core.SVNException
+import svnserver.parser.SvnServerWriter
+import svnserver.server.SessionContext
+import java.io.IOException
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Find revision, when path was deleted.
+ *
+ * <pre>
+ * get-deleted-rev
+ * params:   ( path:string peg-rev:number end-rev:number )
+ * response: ( deleted-rev:number )
+</pre> *
+ *
+ * Protocol can't pass invalid revision, so "not deleted" answer is sent as ENTRY_MISSING_REVISION error (like svnserve).
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GetDeletedRevCmd : BaseCmd<GetDeletedRevCmd.Params>() {
+    override val arguments: Class<out Params>
+        get() {
+            return Params::class.java
+        }
+
+    @Throws(IOException::class, SVNException::class)
+    override fun processCommand(context: SessionContext, args: Params) {
+        val writer: SvnServerWriter = context.writer
+        val fullPath: String = context.getRepositoryPath(args.path)
+        val startRev: Int = min(args.pegRev, args.endRev)
+        val endRev: Int = max(args.pegRev, args.endRev)
+        val latestRev: Int = context.branch.latestRevision.id
+        if (endRev > latestRev) {
+            throw SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision $endRev"))
+        }
+        val deletedRev: Int = context.branch.getDeletedRevision(fullPath, startRev, endRev)
+            ?: throw SVNException(SVNErrorMessage.create(SVNErrorCode.ENTRY_MISSING_REVISION, "Path '" + args.path + "' was not deleted in r" + startRev + "-" + endRev))
+        writer
+            .listBegin()
+            .word("success")
+            .listBegin()
+            .number(deletedRev.toLong())
+            .listEnd()
+            .listEnd()
+    }
+
+    @Throws(IOException::class, SVNException::class)
+    override fun permissionCheck(context: SessionContext, args: Params) {
+        context.checkRead(context.getRepositoryPath(args.path))
+    }
+
+    class Params constructor(val path: String, val pegRev: Int, val endRev: Int)
+}
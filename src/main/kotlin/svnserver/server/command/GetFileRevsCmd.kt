@@ -22,7 +22,6 @@ import svnserver.repository.git.GitFile
 import svnserver.repository.git.GitRepository
 import svnserver.repository.git.GitRevision
 import svnserver.server.SessionContext
-import java.io.ByteArrayOutputStream
 import java.io.IOException
 import java.io.OutputStream
 import java.util.*
@@ -70,6 +69,7 @@ class GetFileRevsCmd : BaseCmd<GetFileRevsCmd.Params>() {
             walkFileHistory(context, head, startRev) { e: GitFile -> history.add(e) }
             if (reverse) history.reverse()
             val compression: SVNDeltaCompression = context.compression
+            val buffer: DeltaWindowBuffer = context.deltaBuffer
             for (index in history.indices.reversed()) {
                 val oldFile = if (index <= history.size - 2) history[index + 1] else null
                 val newFile = history[index]
@@ -91,11 +91,10 @@ class GetFileRevsCmd : BaseCmd<GetFileRevsCmd.Params>() {
                             @Throws(SVNException::class)
                             override fun textDeltaChunk(path: String, diffWindow: SVNDiffWindow): OutputStream? {
                                 try {
-                                    ByteArrayOutputStream().use { stream ->
-                                        diffWindow.writeTo(stream, writeHeader, compression)
-                                        writeHeader = false
-                                        writer.binary(stream.toByteArray())
-                                    }
+                                    buffer.reset()
+                                    diffWindow.writeTo(buffer, writeHeader, compression)
+                                    writeHeader = false
+                                    writer.binary(buffer.buffer, 0, buffer.size())
                                 } catch (e: IOException) {
                                     throw SVNException(SVNErrorMessage.create(SVNErrorCode.IO_ERROR))
                                 }
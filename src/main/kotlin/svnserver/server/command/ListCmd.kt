@@ -0,0 +1,165 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import org.tmatesoft.svn.core.SVNErrorCode
+import org.tmatesoft.svn.core.SVNErrorMessage
+import org.tmatesoft.svn.core.SVNException
+import svnserver.parser.SvnServerWriter
+import svnserver.repository.Depth
+import svnserver.repository.git.GitBranch
+import svnserver.repository.git.GitFile
+import svnserver.repository.git.GitRevision
+import svnserver.repository.git.path.NameMatcher
+import svnserver.repository.git.path.matcher.name.ComplexMatcher
+import svnserver.server.SessionContext
+import java.io.IOException
+
+/**
+ * List directory entries.
+ *
+ * <pre>
+ * list
+ * params:   ( path:string [ rev:number ] depth:word
+ * ( field:dirent-field ... ) ? ( pattern:string ... ) )
+ * Before sending response, server sends dirents, ending with "done".
+ * dirent:   ( rel-path:string kind:node-kind
+ * ? [ size:number ] [ has-props:bool ] [ created-rev:number ]
+ * [ created-date:string ] [ last-author:string ] )
+ * | done
+ * dirent-field: kind | size | has-props | created-rev | time | last-author
+ * | word
+ * response: ( )
+</pre> *
+ *
+ * Entries are streamed during single walk over revision tree. Access is checked per entry only inside subtrees,
+ * which have own access rules.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class ListCmd : BaseCmd<ListCmd.Params>() {
+    override val arguments: Class<out Params>
+        get() {
+            return Params::class.java
+        }
+
+    @Throws(IOException::class, SVNException::class)
+    override fun processCommand(context: SessionContext, args: Params) {
+        val writer: SvnServerWriter = context.writer
+        val fullPath: String = context.getRepositoryPath(args.path)
+        val branch: GitBranch = context.branch
+        val revision: GitRevision = branch.getRevisionInfo(getRevisionOrLatest(args.rev, context))
+        val depth: Depth = Depth.parse(args.depth)
+        if (depth == Depth.Unknown) throw SVNException(SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA, "Invalid depth: " + args.depth))
+        val root: GitFile = revision.getFile(fullPath) ?: throw SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NOT_FOUND, fullPath + " not found in revision " + revision.id))
+        val listing = Listing(context, writer, DirentFields.parse(args.fields), args.patterns.map { pattern -> ComplexMatcher(pattern, dirOnly = false, useSvnMask = false) })
+        writer.corked {
+            listing.report(root, "")
+            if (root.isDirectory && depth != Depth.Empty) {
+                listing.walk(root, "", depth, !context.isUniformSubtree(root.fullPath))
+            }
+            writer.word("done")
+            writer
+                .listBegin()
+                .word("success")
+                .listBegin()
+                .listEnd()
+                .listEnd()
+        }
+    }
+
+    @Throws(IOException::class, SVNException::class)
+    override fun permissionCheck(context: SessionContext, args: Params) {
+        context.checkRead(context.getRepositoryPath(args.path))
+    }
+
+    private class Listing(private val context: SessionContext, private val writer: SvnServerWriter, private val fields: DirentFields, private val patterns: List<NameMatcher>) {
+        /**
+         * @param checkAccess Subtree contains own access rules, so every entry must be checked.
+         */
+        @Throws(IOException::class, SVNException::class)
+        fun walk(dir: GitFile, relPath: String, depth: Depth, checkAccess: Boolean) {
+            for (item: GitFile in dir.entries) {
+                if (depth == Depth.Files && item.isDirectory) continue
+                val itemPath: String = if (relPath.isEmpty()) item.fileName else relPath + "/" + item.fileName
+                val readable: Boolean = !checkAccess || context.canRead(item.fullPath)
+                if (!item.isDirectory) {
+                    if (readable) report(item, itemPath)
+                    continue
+                }
+                val checkSubtree: Boolean = checkAccess && !context.isUniformSubtree(item.fullPath)
+                if (!readable && !checkSubtree) continue
+                if (readable) report(item, itemPath)
+                if (depth == Depth.Infinity) walk(item, itemPath, depth, checkSubtree)
+            }
+        }
+
+        @Throws(IOException::class, SVNException::class)
+        fun report(item: GitFile, relPath: String) {
+            if (patterns.isNotEmpty() && patterns.none { pattern -> pattern.isMatch(item.fileName, item.isDirectory) }) return
+            writer
+                .listBegin()
+                .string(relPath)
+                .word(if (fields.kind) item.kind.toString() else "unknown")
+            if (fields.extended) {
+                val lastChange: GitRevision? = if (fields.lastChange) item.lastChange else null
+                writer.listBegin()
+                if (fields.size) writer.number(item.size)
+                writer.listEnd()
+                writer.listBegin()
+                if (fields.hasProps) writer.bool(item.properties.isNotEmpty())
+                writer.listEnd()
+                writer.listBegin()
+                if (lastChange != null && fields.createdRev) writer.number(lastChange.id.toLong())
+                writer.listEnd()
+                writer.listBegin()
+                if (lastChange != null && fields.time) writer.string(lastChange.dateString)
+                writer.listEnd()
+                writer.listBegin()
+                if (lastChange != null && fields.lastAuthor) lastChange.author?.let { writer.string(it) }
+                writer.listEnd()
+            }
+            writer.listEnd()
+        }
+    }
+
+    private class DirentFields(
+        val kind: Boolean,
+        val size: Boolean,
+        val hasProps: Boolean,
+        val createdRev: Boolean,
+        val time: Boolean,
+        val lastAuthor: Boolean
+    ) {
+        val lastChange: Boolean = createdRev || time || lastAuthor
+        val extended: Boolean = size || hasProps || lastChange
+
+        companion object {
+            fun parse(fields: Array<String>): DirentFields {
+                // Same as svnserve: missing field list means all fields.
+                if (fields.isEmpty()) return DirentFields(kind = true, size = true, hasProps = true, createdRev = true, time = true, lastAuthor = true)
+                return DirentFields(
+                    fields.contains("kind"),
+                    fields.contains("size"),
+                    fields.contains("has-props"),
+                    fields.contains("created-rev"),
+                    fields.contains("time"),
+                    fields.contains("last-author")
+                )
+            }
+        }
+    }
+
+    class Params constructor(
+        val path: String,
+        val rev: IntArray,
+        val depth: String,
+        val fields: Array<String>,
+        val patterns: Array<String>
+    )
+}
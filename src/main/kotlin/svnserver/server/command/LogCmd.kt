@@ -12,8 +12,8 @@ import org.tmatesoft.svn.core.SVNErrorMessage
 import org.tmatesoft.svn.core.SVNException
 import svnserver.parser.SvnServerWriter
 import svnserver.repository.VcsCopyFrom
-import svnserver.repository.git.GitLogEntry
 import svnserver.repository.git.GitRevision
+import svnserver.repository.git.cache.CacheLogChange
 import svnserver.server.SessionContext
 import java.io.IOException
 import java.util.*
@@ -57,67 +57,31 @@ class LogCmd : BaseCmd<LogCmd.Params>() {
         val head: Int = context.branch.latestRevision.id
         val endRev: Int = getRevision(args.endRev, head)
         val startRev: Int = getRevision(args.startRev, 1)
-        if (startRev > head || endRev > head) {
-            writer.word("done")
-            throw SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision " + max(startRev, endRev)))
-        }
-        val log: MutableList<GitRevision>
-        if (startRev >= endRev) {
-            log = getLog(context, args, startRev, endRev, args.limit)
-        } else {
-            val logReverse: List<GitRevision> = getLog(context, args, endRev, startRev, -1)
-            val minIndex: Int = if (args.limit <= 0) 0 else max(0, logReverse.size - args.limit)
-            log = ArrayList(logReverse.size - minIndex)
-            for (i in logReverse.size - 1 downTo minIndex) {
-                log.add(logReverse[i])
+        try {
+            if (startRev > head || endRev > head) {
+                throw SVNException(SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision " + max(startRev, endRev)))
             }
-        }
-        for (revisionInfo: GitRevision in log) {
-            writer
-                .listBegin()
-                .listBegin()
-            if (args.changedPaths) {
-                val changes: Map<String, GitLogEntry> = revisionInfo.changes
-                writer.separator()
-                for (entry: Map.Entry<String, GitLogEntry> in changes.entries) {
-                    val logEntry: GitLogEntry = entry.value
-                    val change: Char = logEntry.change
-                    if (change.toInt() == 0) continue
-                    writer
-                        .listBegin()
-                        .string((entry.key)) // Path
-                        .word(change)
-                        .listBegin()
-                    val copyFrom: VcsCopyFrom? = logEntry.copyFrom
-                    if (copyFrom != null) {
-                        writer.string(copyFrom.path)
-                        writer.number(copyFrom.revision.toLong())
-                    }
-                    writer.listEnd()
-                        .listBegin()
-                        .string(logEntry.kind.toString())
-                        .bool(logEntry.isContentModified) // text-mods
-                        .bool(logEntry.isPropertyModified) // prop-mods
-                        .listEnd()
-                        .listEnd()
-                        .separator()
+            // Entries are written while history is walked: writer flushes every top-level entry,
+            // so client gets first entries immediately and disconnect interrupts walk on next write.
+            if (startRev >= endRev) {
+                walkLog(context, args, startRev, endRev, args.limit) { revision -> writeLogEntry(writer, args, revision) }
+            } else {
+                // Only revision numbers are collected for ascending order.
+                var revisions = IntArray(16)
+                var count = 0
+                walkLog(context, args, endRev, startRev, -1) { revision ->
+                    if (count == revisions.size) revisions = revisions.copyOf(count * 2)
+                    revisions[count++] = revision.id
+                }
+                val minIndex: Int = if (args.limit <= 0) 0 else max(0, count - args.limit)
+                for (i in count - 1 downTo minIndex) {
+                    writeLogEntry(writer, args, context.branch.getRevisionInfo(revisions[i]))
                 }
             }
-            val revProps: Map<String, String> = revisionInfo.getProperties(false)
-            writer.listEnd()
-                .number(revisionInfo.id.toLong())
-                .stringNullable(revisionInfo.author)
-                .stringNullable(revisionInfo.dateString)
-                .stringNullable(revisionInfo.log)
-                .bool(false)
-                .bool(false)
-                .number(revProps.size.toLong())
-                .writeMap(revProps)
-                .listEnd()
-                .separator()
+        } finally {
+            // Entry list must be terminated even if walk fails, so client can read following error response.
+            writer.word("done")
         }
-        writer
-            .word("done")
         writer
             .listBegin()
             .word("success")
@@ -126,6 +90,56 @@ class LogCmd : BaseCmd<LogCmd.Params>() {
             .listEnd()
     }
 
+    /**
+     * Everything that can fail is loaded before first token is written, so failed entry is never sent partially.
+     */
+    @Throws(IOException::class)
+    private fun writeLogEntry(writer: SvnServerWriter, args: Params, revisionInfo: GitRevision) {
+        val changes: Map<String, CacheLogChange>? = if (args.changedPaths) revisionInfo.logChanges else null
+        val revProps: Map<String, String> = revisionInfo.getProperties(false)
+        val author: String? = revisionInfo.author
+        val date: String = revisionInfo.dateString
+        val message: String? = revisionInfo.log
+        writer
+            .listBegin()
+            .listBegin()
+        if (changes != null) {
+            writer.separator()
+            for (entry: Map.Entry<String, CacheLogChange> in changes.entries) {
+                val logEntry: CacheLogChange = entry.value
+                writer
+                    .listBegin()
+                    .string((entry.key)) // Path
+                    .word(logEntry.change)
+                    .listBegin()
+                val copyFrom: VcsCopyFrom? = logEntry.copyFrom
+                if (copyFrom != null) {
+                    writer.string(copyFrom.path)
+                    writer.number(copyFrom.revision.toLong())
+                }
+                writer.listEnd()
+                    .listBegin()
+                    .string(logEntry.kind.toString())
+                    .bool(logEntry.isContentModified) // text-mods
+                    .bool(logEntry.isPropertyModified) // prop-mods
+                    .listEnd()
+                    .listEnd()
+                    .separator()
+            }
+        }
+        writer.listEnd()
+            .number(revisionInfo.id.toLong())
+            .stringNullable(author)
+            .stringNullable(date)
+            .stringNullable(message)
+            .bool(false)
+            .bool(false)
+            .number(revProps.size.toLong())
+            .writeMap(revProps)
+            .listEnd()
+            .separator()
+    }
+
     @Throws(IOException::class, SVNException::class)
     override fun permissionCheck(context: SessionContext, args: Params) {
         for (path: String in args.targetPath) context.checkRead(context.getRepositoryPath(path))
@@ -134,8 +148,8 @@ class LogCmd : BaseCmd<LogCmd.Params>() {
     /**
      * TODO: This method is very similar to GetFileRevsCmd#walkFileHistory. Maybe they can be combined?
      */
-    @Throws(SVNException::class)
-    private fun getLog(context: SessionContext, args: Params, endRev: Int, startRev: Int, limit: Int): MutableList<GitRevision> {
+    @Throws(IOException::class, SVNException::class)
+    private fun walkLog(context: SessionContext, args: Params, endRev: Int, startRev: Int, limit: Int, consumer: LogConsumer) {
         val targetPaths = ArrayList<VcsCopyFrom>()
         var revision = -1
         for (target in args.targetPath) {
@@ -146,11 +160,10 @@ class LogCmd : BaseCmd<LogCmd.Params>() {
                 revision = max(revision, lastChange)
             }
         }
-        val result = ArrayList<GitRevision>()
         var logLimit: Int = limit
         while (revision >= startRev) {
             val revisionInfo: GitRevision = context.branch.getRevisionInfo(revision)
-            result.add(revisionInfo)
+            consumer.accept(revisionInfo)
             if (--logLimit == 0) break
             var nextRevision: Int = -1
             val iter = targetPaths.listIterator()
@@ -181,7 +194,11 @@ class LogCmd : BaseCmd<LogCmd.Params>() {
             }
             revision = nextRevision
         }
-        return result
+    }
+
+    private fun interface LogConsumer {
+        @Throws(IOException::class, SVNException::class)
+        fun accept(revision: GitRevision)
     }
 
     class Params constructor(
@@ -27,6 +27,8 @@ import java.io.IOException
  * After edit completes, server sends response.
  * response   ( )
 </pre> *
+ *
+ * Replay is relative to session URL (partial replay): only changes inside session subtree are sent.
  *
  * @author a.navrotskiy
  */
@@ -38,13 +40,15 @@ class ReplayCmd : BaseCmd<ReplayCmd.Params>() {
 
     @Throws(IOException::class, SVNException::class)
     override fun processCommand(context: SessionContext, args: Params) {
-        replayRevision(context, args.revision, args.lowRevision, args.sendDeltas)
         val writer: SvnServerWriter = context.writer
-        writer
-            .listBegin()
-            .word("success")
-            .listBegin().listEnd()
-            .listEnd()
+        writer.corked {
+            replayRevision(context, args.revision, args.lowRevision, args.sendDeltas)
+            writer
+                .listBegin()
+                .word("success")
+                .listBegin().listEnd()
+                .listEnd()
+        }
     }
 
     @Throws(IOException::class, SVNException::class)
@@ -54,8 +58,47 @@ class ReplayCmd : BaseCmd<ReplayCmd.Params>() {
 
     class Params constructor(val revision: Int, val lowRevision: Int, val sendDeltas: Boolean)
     companion object {
+        private const val ROOT_TOKEN: String = "t0"
+
+        /**
+         * Check if revision changes anything inside session subtree (partial replay).
+         */
+        private fun isTouched(context: SessionContext, revision: Int): Boolean {
+            if (revision <= 0) return true
+            val path: String = context.getRepositoryPath("")
+            return context.branch.getLastChange(path, revision) == revision || context.branch.isRemoved(path, revision)
+        }
+
         @Throws(IOException::class, SVNException::class)
         fun replayRevision(context: SessionContext, revision: Int, lowRevision: Int, sendDeltas: Boolean) {
+            val writer: SvnServerWriter = context.writer
+            if (!isTouched(context, revision)) {
+                // Session subtree is not changed by revision: send empty edit without comparing trees.
+                writer
+                    .listBegin()
+                    .word("target-rev")
+                    .listBegin().number(revision.toLong()).listEnd()
+                    .listEnd()
+                writer
+                    .listBegin()
+                    .word("open-root")
+                    .listBegin()
+                    .listBegin().number((revision - 1).toLong()).listEnd()
+                    .string(ROOT_TOKEN)
+                    .listEnd()
+                    .listEnd()
+                writer
+                    .listBegin()
+                    .word("close-dir")
+                    .listBegin().string(ROOT_TOKEN).listEnd()
+                    .listEnd()
+                writer
+                    .listBegin()
+                    .word("finish-replay")
+                    .listBegin().listEnd()
+                    .listEnd()
+                return
+            }
             val pipeline = ReportPipeline(
                 DeltaParams(
                     intArrayOf(revision),
@@ -71,7 +114,6 @@ class ReplayCmd : BaseCmd<ReplayCmd.Params>() {
             )
             pipeline.setPathReport("", revision - 1, false, SVNDepth.INFINITY)
             pipeline.sendDelta(context)
-            val writer: SvnServerWriter = context.writer
             writer
                 .listBegin()
                 .word("finish-replay")
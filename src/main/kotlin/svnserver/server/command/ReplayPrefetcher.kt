@@ -0,0 +1,159 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import svnserver.parser.SvnServerWriter
+import svnserver.server.SessionContext
+import java.io.IOException
+import java.io.OutputStream
+import java.util.*
+import java.util.concurrent.*
+
+/**
+ * Encodes replay-range editor commands for next revisions ahead of session thread.
+ *
+ * Revisions must be taken in order. Prepared revisions of all sessions share server-wide memory budget: memory is
+ * taken from it chunk by chunk while revision is encoded and returned after revision is sent. Revisions that don't
+ * fit are dropped and replayed by session thread as usual.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+internal class ReplayPrefetcher(
+    private val context: SessionContext,
+    private val executor: Executor,
+    private val lookAhead: Int,
+    private val memory: Semaphore,
+    startRev: Int,
+    private val endRev: Int,
+    private val lowRevision: Int,
+    private val sendDeltas: Boolean
+) : AutoCloseable {
+    private val pending = ArrayDeque<Task>()
+    private var nextRevision: Int = startRev
+
+    /**
+     * Write prepared editor commands for revision.
+     *
+     * @return False, if revision must be replayed inline.
+     */
+    @Throws(IOException::class)
+    fun take(revision: Int, writer: SvnServerWriter): Boolean {
+        submit()
+        val task: Task = pending.pollFirst() ?: return false
+        if (task.revision != revision) {
+            task.buffer.release()
+            throw IllegalStateException("Unexpected revision: $revision (expected: ${task.revision})")
+        }
+        submit()
+        try {
+            if (task.future.get() != true) return false
+            task.buffer.writeTo(writer)
+            return true
+        } catch (e: ExecutionException) {
+            // Let session thread reproduce and report the error.
+            return false
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            return false
+        } finally {
+            task.buffer.release()
+        }
+    }
+
+    private fun submit() {
+        while (pending.size < lookAhead && nextRevision <= endRev) {
+            val task = Task(nextRevision++)
+            pending.addLast(task)
+            executor.execute(task.future)
+        }
+    }
+
+    override fun close() {
+        for (task in pending) {
+            task.future.cancel(false)
+            task.buffer.release()
+        }
+        pending.clear()
+    }
+
+    private inner class Task(val revision: Int) {
+        val buffer = BudgetOutputStream(memory)
+        val future = FutureTask<Boolean>(Callable { compute() })
+
+        private fun compute(): Boolean {
+            try {
+                SvnServerWriter(buffer).use { writer ->
+                    ReplayCmd.replayRevision(context.fork(writer), revision, lowRevision, sendDeltas)
+                }
+            } catch (e: LimitExceededException) {
+                return false
+            }
+            return true
+        }
+    }
+
+    /**
+     * Output stream of fixed-size chunks, every chunk is taken from memory budget.
+     *
+     * Released stream returns its memory and rejects further writes, so task that is still running after prefetcher
+     * is closed can't leak budget.
+     */
+    private class BudgetOutputStream(private val memory: Semaphore) : OutputStream() {
+        private val chunks = ArrayList<ByteArray>()
+        private var current: ByteArray = ByteArray(0)
+        private var used: Int = 0
+        private var released: Boolean = false
+
+        override fun write(b: Int) {
+            if (used == current.size) allocate()
+            current[used++] = b.toByte()
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            var offset = off
+            var remain = len
+            while (remain > 0) {
+                if (used == current.size) allocate()
+                val size: Int = minOf(remain, current.size - used)
+                System.arraycopy(b, offset, current, used, size)
+                used += size
+                offset += size
+                remain -= size
+            }
+        }
+
+        @Synchronized
+        private fun allocate() {
+            if (released || !memory.tryAcquire(CHUNK_SIZE)) throw LimitExceededException()
+            current = ByteArray(CHUNK_SIZE)
+            chunks.add(current)
+            used = 0
+        }
+
+        @Throws(IOException::class)
+        fun writeTo(writer: SvnServerWriter) {
+            for (i in chunks.indices) {
+                writer.raw(chunks[i], 0, if (i == chunks.size - 1) used else CHUNK_SIZE)
+            }
+        }
+
+        @Synchronized
+        fun release() {
+            if (released) return
+            released = true
+            memory.release(chunks.size * CHUNK_SIZE)
+            chunks.clear()
+        }
+    }
+
+    private class LimitExceededException : IOException("Revision is too big for replay look-ahead")
+
+    companion object {
+        private const val CHUNK_SIZE: Int = 64 * 1024
+    }
+}
@@ -46,20 +46,29 @@ class ReplayRangeCmd : BaseCmd<ReplayRangeCmd.Params>() {
             throw SVNException(SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Invalid revision range: start: " + args.startRev + ", end " + args.endRev))
         }
         val writer: SvnServerWriter = context.writer
-        for (revision in args.startRev..args.endRev) {
-            val revisionInfo: GitRevision = context.branch.getRevisionInfo(revision)
+        writer.corked {
+            val prefetcher: ReplayPrefetcher? = context.createReplayPrefetcher(args.startRev, args.endRev, args.lowRevision, args.sendDeltas)
+            try {
+                for (revision in args.startRev..args.endRev) {
+                    val revisionInfo: GitRevision = context.branch.getRevisionInfo(revision)
+                    writer
+                        .listBegin()
+                        .word("revprops")
+                        .writeMap(revisionInfo.getProperties(true))
+                        .listEnd()
+                    if (prefetcher == null || !prefetcher.take(revision, writer)) {
+                        ReplayCmd.replayRevision(context, revision, args.lowRevision, args.sendDeltas)
+                    }
+                }
+            } finally {
+                prefetcher?.close()
+            }
             writer
                 .listBegin()
-                .word("revprops")
-                .writeMap(revisionInfo.getProperties(true))
+                .word("success")
+                .listBegin().listEnd()
                 .listEnd()
-            ReplayCmd.replayRevision(context, revision, args.lowRevision, args.sendDeltas)
         }
-        writer
-            .listBegin()
-            .word("success")
-            .listBegin().listEnd()
-            .listEnd()
     }
 
     @Throws(IOException::class, SVNException::class)
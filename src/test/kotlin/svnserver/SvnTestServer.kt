@@ -57,6 +57,7 @@ class SvnTestServer private constructor(
     anonymousRead: Boolean,
     lfsMode: LfsMode,
     emptyDirs: EmptyDirsSupport,
+    configure: ((Config) -> Unit)?,
     vararg shared: SharedConfig
 ) : SvnTester {
     val tempDirectory: Path
@@ -190,7 +191,7 @@ class SvnTestServer private constructor(
         }
 
         fun createEmpty(userDBConfig: UserDBConfig?, mappingConfigCreator: Function<Path, RepositoryMappingConfig>?, anonymousRead: Boolean, lfsMode: LfsMode, emptyDirs: EmptyDirsSupport, vararg shared: SharedConfig): SvnTestServer {
-            return SvnTestServer(TestHelper.emptyRepository(), Constants.MASTER, "", false, userDBConfig, mappingConfigCreator, anonymousRead, lfsMode, emptyDirs, *shared)
+            return SvnTestServer(TestHelper.emptyRepository(), Constants.MASTER, "", false, userDBConfig, mappingConfigCreator, anonymousRead, lfsMode, emptyDirs, null, *shared)
         }
 
         fun createEmpty(userDBConfig: UserDBConfig?, mappingConfigCreator: Function<Path, RepositoryMappingConfig>?, anonymousRead: Boolean, lfsMode: LfsMode, vararg shared: SharedConfig): SvnTestServer {
@@ -209,8 +210,12 @@ class SvnTestServer private constructor(
             return createEmpty(userDBConfig, null, anonymousRead, LfsMode.Memory, EmptyDirsSupport.Disabled, *shared)
         }
 
+        fun createEmpty(configure: (Config) -> Unit): SvnTestServer {
+            return SvnTestServer(TestHelper.emptyRepository(), Constants.MASTER, "", false, null, null, false, LfsMode.Memory, EmptyDirsSupport.Disabled, configure)
+        }
+
         fun createMasterRepository(): SvnTestServer {
-            return SvnTestServer(FileRepository(TestHelper.findGitPath().toFile()), null, "", true, null, null, true, LfsMode.Memory, EmptyDirsSupport.Disabled)
+            return SvnTestServer(FileRepository(TestHelper.findGitPath().toFile()), null, "", true, null, null, true, LfsMode.Memory, EmptyDirsSupport.Disabled, null)
         }
 
         private const val BIND_HOST = "127.0.0.2"
@@ -269,6 +274,7 @@ class SvnTestServer private constructor(
             )
         }
         Collections.addAll(config.shared, *shared)
+        configure?.invoke(config)
         server = SvnServer(tempDirectory, config)
         server.start()
         log.info("Temporary server started (url: {}, path: {}, branch: {} as {})", url, repository.directory, srcBranch, testBranch)
@@ -190,6 +190,23 @@ class ACLTest {
         Assert.assertTrue(acl.canRead(Bob, Constants.MASTER, "/b"))
     }
 
+    @Test
+    fun uniformSubtree() {
+        val entries = mapOf(
+            "/" to Collections.singletonMap(Bob.username, "rw"),
+            "/dir/secret" to Collections.singletonMap<String, String?>(Bob.username, null),
+            "release:/other/secret" to Collections.singletonMap<String, String?>(Bob.username, null),
+        )
+        val acl = ACL(emptyMap(), entries)
+        Assert.assertFalse(acl.isUniformSubtree(Constants.MASTER, "/"))
+        Assert.assertFalse(acl.isUniformSubtree(Constants.MASTER, "/dir"))
+        // Rules of subtree root itself don't break uniformity.
+        Assert.assertTrue(acl.isUniformSubtree(Constants.MASTER, "/dir/secret"))
+        Assert.assertTrue(acl.isUniformSubtree(Constants.MASTER, "/dir/secretary"))
+        Assert.assertTrue(acl.isUniformSubtree(Constants.MASTER, "/other"))
+        Assert.assertFalse(acl.isUniformSubtree("release", "/other"))
+    }
+
     companion object {
         private val Bob = User.create("bob", "Bob", "bob@acme.com", null, UserType.Local, null)
         private val Alice = User.create("alice", "Alice", "alice@acme.com", null, UserType.Local, null)
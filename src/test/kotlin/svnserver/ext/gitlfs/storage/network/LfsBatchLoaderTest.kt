@@ -0,0 +1,133 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.ext.gitlfs.storage.network
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import ru.bozaro.gitlfs.client.Client
+import ru.bozaro.gitlfs.client.auth.CachedAuthProvider
+import ru.bozaro.gitlfs.common.data.*
+import svnserver.auth.User
+import svnserver.ext.gitlfs.storage.LfsStorage
+import java.io.IOException
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.FutureTask
+
+/**
+ * Test for LfsBatchLoader.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class LfsBatchLoaderTest {
+    @Test
+    fun testSequential() {
+        val client = BatchClient(setOf(hashA, hashB))
+        val loader = LfsBatchLoader { client }
+        Assert.assertEquals(loader.lookup(Meta(hashA, 1))?.oid, hashA)
+        Assert.assertNull(loader.lookup(Meta(hashMissing, 1)))
+        Assert.assertEquals(loader.lookup(Meta(hashB, 1))?.oid, hashB)
+        Assert.assertEquals(client.batches, listOf(listOf(hashA), listOf(hashMissing), listOf(hashB)))
+    }
+
+    @Test(timeOut = 10000)
+    fun testCoalescing() {
+        val client = BatchClient(setOf(hashA, hashB, hashC))
+        val gate = CountDownLatch(1)
+        client.gate = gate
+        val loader = LfsBatchLoader { client }
+
+        // First lookup is sent immediately and holds request in flight.
+        val first = lookup(loader, hashA)
+        client.started.await()
+        // Concurrent lookups wait for it and are sent as single batch, duplicates are requested once.
+        val waiting = listOf(lookup(loader, hashB), lookup(loader, hashC), lookup(loader, hashB), lookup(loader, hashMissing))
+        for (item in waiting) {
+            while (item.second.state != Thread.State.WAITING) Thread.sleep(1)
+        }
+        gate.countDown()
+
+        Assert.assertEquals(first.first.get()?.oid, hashA)
+        Assert.assertEquals(waiting[0].first.get()?.oid, hashB)
+        Assert.assertEquals(waiting[1].first.get()?.oid, hashC)
+        Assert.assertEquals(waiting[2].first.get()?.oid, hashB)
+        Assert.assertNull(waiting[3].first.get())
+        Assert.assertEquals(client.batches.size, 2)
+        Assert.assertEquals(client.batches[0], listOf(hashA))
+        Assert.assertEquals(client.batches[1].toSet(), setOf(hashB, hashC, hashMissing))
+        Assert.assertEquals(client.batches[1].size, 3)
+    }
+
+    @Test
+    fun testLookupAll() {
+        val hashes = (0 until 150).map { i -> String.format("%064x", i) }
+        val client = BatchClient(hashes.toSet())
+        val loader = LfsBatchLoader { client }
+        val items = loader.lookupAll((hashes + hashes[0] + hashMissing).map { hash -> Meta(hash, 1) })
+        Assert.assertEquals(items.keys, hashes.toSet())
+        // Duplicates are requested once, request is split by batch size limit.
+        Assert.assertEquals(client.batches.map { batch -> batch.size }, listOf(100, 51))
+    }
+
+    @Test
+    fun testStoragePrefetch() {
+        val client = BatchClient(setOf(hashA, hashB, hashC))
+        val storage = object : LfsHttpStorage() {
+            override fun lfsClient(user: User): Client {
+                return client
+            }
+        }
+        storage.prefetch(listOf(hashA, hashB, hashC, hashMissing).map { hash -> Meta(LfsStorage.OID_PREFIX + hash, 1) })
+        Assert.assertEquals(client.batches, listOf(listOf(hashA, hashB, hashC, hashMissing)))
+
+        // Prefetched objects don't need separate requests.
+        for (hash in listOf(hashA, hashB, hashC)) {
+            Assert.assertEquals(storage.getReader(LfsStorage.OID_PREFIX + hash, 1)?.getOid(false), hash)
+        }
+        Assert.assertNull(storage.getReader(LfsStorage.OID_PREFIX + hashMissing, 1))
+        Assert.assertEquals(client.batches, listOf(listOf(hashA, hashB, hashC, hashMissing), listOf(hashMissing)))
+    }
+
+    private fun lookup(loader: LfsBatchLoader, hash: String): Pair<FutureTask<BatchItem?>, Thread> {
+        val task = FutureTask { loader.lookup(Meta(hash, 1)) }
+        val thread = Thread(task)
+        thread.isDaemon = true
+        thread.start()
+        return Pair(task, thread)
+    }
+
+    private class BatchClient(private val known: Set<String>) : Client(NoAuthProvider(), LfsHttpStorage.createHttpClient()) {
+        val batches = CopyOnWriteArrayList<List<String>>()
+        val started = CountDownLatch(1)
+
+        @Volatile
+        var gate: CountDownLatch? = null
+
+        override fun postBatch(batchReq: BatchReq): BatchRes {
+            batches.add(batchReq.objects.map { meta -> meta.oid })
+            started.countDown()
+            val latch: CountDownLatch? = gate
+            gate = null
+            latch?.await()
+            return BatchRes(batchReq.objects.filter { meta -> known.contains(meta.oid) }.map { meta -> BatchItem(meta.oid, meta.size, emptyMap(), null) })
+        }
+    }
+
+    private class NoAuthProvider : CachedAuthProvider() {
+        override fun getAuthUncached(operation: Operation): Link {
+            throw IOException("Unexpected authentication request")
+        }
+    }
+
+    companion object {
+        private val hashA: String = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"
+        private val hashB: String = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb"
+        private val hashC: String = "cccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccc"
+        private val hashMissing: String = "dddddddddddddddddddddddddddddddddddddddddddddddddddddddddddddddd"
+    }
+}
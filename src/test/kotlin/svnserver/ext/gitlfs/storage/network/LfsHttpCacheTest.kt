@@ -0,0 +1,79 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.ext.gitlfs.storage.network
+
+import com.google.common.hash.Hashing
+import org.testng.Assert
+import org.testng.annotations.Test
+import svnserver.TestHelper
+import java.io.IOException
+import java.nio.charset.StandardCharsets
+
+/**
+ * Test for LfsHttpCache.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class LfsHttpCacheTest {
+    @Test
+    fun testEviction() {
+        val tempDir = TestHelper.createTempDir("git-as-svn")
+        try {
+            val cache = LfsHttpCache(tempDir, 10)
+            download(cache, "aaaa")
+            download(cache, "bbbb")
+            // Touch first object, so second one becomes least recently used.
+            cache.openStream(hash("aaaa"))!!.use { stream -> Assert.assertEquals(String(stream.readBytes(), StandardCharsets.UTF_8), "aaaa") }
+            download(cache, "cccc")
+
+            Assert.assertEquals(cache.getSize(hash("aaaa")), 4L)
+            Assert.assertNull(cache.getSize(hash("bbbb")))
+            Assert.assertEquals(cache.getSize(hash("cccc")), 4L)
+            Assert.assertNull(cache.openStream(hash("bbbb")))
+
+            // Cache content survives restart.
+            val restored = LfsHttpCache(tempDir, 10)
+            Assert.assertEquals(restored.getSize(hash("aaaa")), 4L)
+            Assert.assertNull(restored.getSize(hash("bbbb")))
+            Assert.assertEquals(restored.getSize(hash("cccc")), 4L)
+        } finally {
+            TestHelper.deleteDirectory(tempDir)
+        }
+    }
+
+    @Test
+    fun testHashMismatch() {
+        val tempDir = TestHelper.createTempDir("git-as-svn")
+        try {
+            val cache = LfsHttpCache(tempDir, 1024)
+            val expected: String = hash("expected")
+            try {
+                cache.download(expected) { stream -> stream.write("actual".toByteArray(StandardCharsets.UTF_8)) }
+                Assert.fail()
+            } catch (e: IOException) {
+                Assert.assertTrue(e.message!!.contains("hash mismatch"), e.message)
+            }
+            Assert.assertNull(cache.getSize(expected))
+            Assert.assertNull(cache.openStream(expected))
+            Assert.assertNull(LfsHttpCache(tempDir, 1024).getSize(expected))
+        } finally {
+            TestHelper.deleteDirectory(tempDir)
+        }
+    }
+
+    companion object {
+        private fun hash(content: String): String {
+            return Hashing.sha256().hashBytes(content.toByteArray(StandardCharsets.UTF_8)).toString()
+        }
+
+        private fun download(cache: LfsHttpCache, content: String) {
+            val data: ByteArray = content.toByteArray(StandardCharsets.UTF_8)
+            cache.download(hash(content)) { stream -> stream.write(data) }.use { stream -> Assert.assertEquals(stream.readBytes(), data) }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import ru.bozaro.gitlfs.common.data.Link
 import ru.bozaro.gitlfs.common.data.Operation
 import svnserver.SvnTestHelper
 import svnserver.SvnTestServer
+import svnserver.TestHelper
 import svnserver.VcsAccessEveryone
 import svnserver.VcsAccessNoAnonymous
 import svnserver.auth.LocalUserDB
@@ -167,7 +168,52 @@ class LfsHttpStorageTest {
         }
     }
 
-    private class GitAsSvnLfsHttpStorage(private val authUrl: URI, private val lfsUser: User) : LfsHttpStorage(), LfsStorageFactory, SharedConfig {
+    @Test
+    fun evictedCacheFallback() {
+        val users = LocalUserDB()
+        val user = users.add("test", "test", "Test User", "test@example.com")
+        Assert.assertNotNull(user)
+        val tempDir = TestHelper.createTempDir("git-as-svn")
+        try {
+            SharedContext.create(Paths.get("/nonexistent"), "realm", memoryDB().make(), listOf(WebServerConfig(0))).use { sharedContext ->
+                val webServer = sharedContext.sure(WebServer::class.java)
+                sharedContext.add(LfsServer::class.java, LfsServer("t0ken", 0, 0F))
+                sharedContext.add(UserDB::class.java, users)
+                sharedContext.ready()
+                val localContext = LocalContext(sharedContext, "example")
+                localContext.add(VcsAccess::class.java, VcsAccessNoAnonymous())
+                localContext.add(LfsStorage::class.java, LfsMemoryStorage())
+                sharedContext.sure(LfsServer::class.java).register(localContext, localContext.sure(LfsStorage::class.java))
+                val dataA: ByteArray = LfsLocalStorageTest.bigFile()
+                val dataB: ByteArray = dataA + 42.toByte()
+                val url = webServer.getBaseUrl().resolve("example.git/").resolve(LfsServer.SERVLET_AUTH)
+                // Cache has room for single object only.
+                val cache = LfsHttpCache(tempDir, dataB.size.toLong())
+                val storage: LfsHttpStorage = GitAsSvnLfsHttpStorage(url, user!!, cache)
+                val oidA: String = upload(storage, user, dataA)
+                val oidB: String = upload(storage, user, dataB)
+
+                storage.getReader(oidA, -1)!!.openStream().use { stream -> Assert.assertEquals(ByteStreams.toByteArray(stream), dataA) }
+                val cachedA = storage.getReader(oidA, -1)
+                Assert.assertTrue(cachedA is LfsCachedReader)
+                // Object is evicted between reader creation and opening stream.
+                storage.getReader(oidB, -1)!!.openStream().use { stream -> Assert.assertEquals(ByteStreams.toByteArray(stream), dataB) }
+                Assert.assertNull(cache.getSize(oidA.substring(LfsStorage.OID_PREFIX.length)))
+                cachedA!!.openStream().use { stream -> Assert.assertEquals(ByteStreams.toByteArray(stream), dataA) }
+            }
+        } finally {
+            TestHelper.deleteDirectory(tempDir)
+        }
+    }
+
+    private fun upload(storage: LfsStorage, user: User, data: ByteArray): String {
+        storage.getWriter(user).use { writer ->
+            writer.write(data)
+            return writer.finish(null)
+        }
+    }
+
+    private class GitAsSvnLfsHttpStorage(private val authUrl: URI, private val lfsUser: User, cache: LfsHttpCache? = null) : LfsHttpStorage(cache), LfsStorageFactory, SharedConfig {
         override fun createStorage(context: LocalContext): LfsStorage {
             return this
         }
@@ -141,4 +141,77 @@ class SvnServerParserTest {
             Assert.assertEquals(parser.readToken(WordToken::class.java), WordToken("end"))
         }
     }
+
+    @Test
+    fun testReadBinarySmallBuffer() {
+        ByteArrayInputStream("( 13:Hello, world! 0: done ) ".toByteArray(StandardCharsets.UTF_8)).use { stream ->
+            val parser = SvnServerParser(stream, 4)
+            val output = ByteArrayOutputStream()
+            Assert.assertEquals(parser.readToken(ListBeginToken::class.java), ListBeginToken.instance)
+            Assert.assertEquals(parser.readBinary { data: ByteArray, offset: Int, length: Int -> output.write(data, offset, length) }, 13)
+            Assert.assertEquals(parser.readBinary { data: ByteArray, offset: Int, length: Int -> output.write(data, offset, length) }, 0)
+            Assert.assertEquals(String(output.toByteArray(), StandardCharsets.UTF_8), "Hello, world!")
+            Assert.assertSame(parser.readToken(WordToken::class.java), WordToken.intern("done".toByteArray(StandardCharsets.US_ASCII), 0, 4))
+            Assert.assertEquals(parser.readToken(ListEndToken::class.java), ListEndToken.instance)
+        }
+    }
+
+    @Test
+    fun testNestedRoundTrip() {
+        val stream = ByteArrayOutputStream()
+        val writer = SvnServerWriter(stream)
+        writer.listBegin().number(7)
+        writer.listBegin().string("item").listBegin().number(1).number(2).number(3).listEnd().listEnd()
+        writer.listBegin()
+        writer.listBegin().string("a").listBegin().listEnd().listEnd()
+        writer.listBegin().string("b").listBegin().number(5).listEnd().listEnd()
+        writer.listEnd()
+        writer.bool(true).string("tail").listEnd()
+        writer.word("next")
+        writer.flush()
+
+        val parser = SvnServerParser(ByteArrayInputStream(stream.toByteArray()))
+        val message = parse(NestedMessage::class.java, parser)
+        Assert.assertEquals(message.id, 7)
+        Assert.assertEquals(message.item.name, "item")
+        ArrayAsserts.assertArrayEquals(message.item.revs, intArrayOf(1, 2, 3))
+        Assert.assertEquals(message.items.map { item -> item.name }, listOf("a", "b"))
+        ArrayAsserts.assertArrayEquals(message.items[0].revs, intArrayOf())
+        ArrayAsserts.assertArrayEquals(message.items[1].revs, intArrayOf(5))
+        Assert.assertTrue(message.flag)
+        Assert.assertEquals(message.tail, "tail")
+        Assert.assertEquals(parser.readText(), "next")
+    }
+
+    @Test
+    fun testIntsGrowth() {
+        val expected = IntArray(100) { i -> i * 3 }
+        val stream = ByteArrayOutputStream()
+        val writer = SvnServerWriter(stream)
+        writer.listBegin().string("many").listBegin()
+        for (value in expected) writer.number(value.toLong())
+        writer.listEnd().listEnd()
+        writer.flush()
+
+        val item = parse(NestedItem::class.java, SvnServerParser(ByteArrayInputStream(stream.toByteArray())))
+        Assert.assertEquals(item.name, "many")
+        ArrayAsserts.assertArrayEquals(item.revs, expected)
+    }
+
+    @Test
+    fun testSelfReference() {
+        ByteArrayInputStream("( 4:root ( ( 1:a ( ) ) ( 1:b ( ( 1:c ( ) ) ) ) ) ) ".toByteArray(StandardCharsets.UTF_8)).use { stream ->
+            val node = parse(TreeNode::class.java, SvnServerParser(stream))
+            Assert.assertEquals(node.name, "root")
+            Assert.assertEquals(node.children.map { child -> child.name }, listOf("a", "b"))
+            Assert.assertEquals(node.children[0].children.size, 0)
+            Assert.assertEquals(node.children[1].children.map { child -> child.name }, listOf("c"))
+        }
+    }
+
+    private class NestedItem(val name: String, val revs: IntArray)
+
+    private class NestedMessage(val id: Int, val item: NestedItem, val items: Array<NestedItem>, val flag: Boolean, val tail: String)
+
+    private class TreeNode(val name: String, val children: Array<TreeNode>)
 }
@@ -0,0 +1,67 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.parser
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import java.io.ByteArrayOutputStream
+
+/**
+ * Check flush behaviour of SvnServerWriter.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class SvnServerWriterTest {
+    @Test
+    fun flushPerItem() {
+        val stream = FlushRecorder()
+        val writer = SvnServerWriter(stream)
+        writer.listBegin().word("success").listBegin().listEnd().listEnd()
+        writer.string("text")
+        Assert.assertEquals(stream.flushes, listOf(stream.size() - 7, stream.size()))
+        Assert.assertEquals(writer.flushCount, 2L)
+    }
+
+    @Test
+    fun corkedFlushBySize() {
+        val stream = FlushRecorder()
+        val writer = SvnServerWriter(stream)
+        val item = ByteArray(1000) { i -> ('a' + i % 26).toByte() }
+        val itemSize = 1000 + "1000: ".length
+        val count = 200
+        writer.corked {
+            for (i in 0 until count) {
+                writer.binary(item)
+            }
+            // Only full batches are flushed inside corked block.
+            Assert.assertTrue(stream.flushes.isNotEmpty())
+            var prev = 0
+            for (flushed in stream.flushes) {
+                Assert.assertTrue(flushed - prev >= SvnServerWriter.CORK_MAX_BYTES, "Flushed too early: ${flushed - prev}")
+                Assert.assertTrue(flushed - prev < SvnServerWriter.CORK_MAX_BYTES + itemSize, "Flushed too late: ${flushed - prev}")
+                prev = flushed
+            }
+            Assert.assertTrue(count * itemSize - prev < SvnServerWriter.CORK_MAX_BYTES)
+        }
+        // Tail is flushed on exit from block.
+        Assert.assertEquals(stream.flushes.last(), count * itemSize)
+        Assert.assertEquals(writer.flushedBytes, (count * itemSize).toLong())
+        Assert.assertEquals(writer.flushCount, stream.flushes.size.toLong())
+    }
+
+    /**
+     * Records amount of received data on every flush.
+     */
+    private class FlushRecorder : ByteArrayOutputStream() {
+        val flushes = ArrayList<Int>()
+
+        override fun flush() {
+            flushes.add(size())
+        }
+    }
+}
@@ -7,6 +7,9 @@
  */
 package svnserver.replay
 
+import com.google.common.hash.Funnels
+import com.google.common.hash.Hasher
+import com.google.common.hash.Hashing
 import org.eclipse.jgit.lib.ObjectId
 import org.eclipse.jgit.lib.Repository
 import org.eclipse.jgit.revwalk.RevCommit
@@ -19,13 +22,17 @@ import org.tmatesoft.svn.core.io.ISVNEditor
 import org.tmatesoft.svn.core.io.ISVNReplayHandler
 import org.tmatesoft.svn.core.io.ISVNReporter
 import org.tmatesoft.svn.core.io.SVNRepository
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow
 import svnserver.StringHelper.getFirstLine
 import svnserver.SvnConstants
 import svnserver.SvnTestHelper
 import svnserver.SvnTestServer
 import svnserver.TestHelper
 import svnserver.repository.VcsConsumer
+import svnserver.server.SvnFilePropertyTest
 import svnserver.tester.SvnTesterSvnKit
+import java.io.OutputStream
+import java.nio.charset.StandardCharsets
 import java.util.*
 import kotlin.math.min
 
@@ -211,6 +218,129 @@ class ReplayTest {
         }
     }
 
+    @Test
+    fun testPartialReplaySkipsUnrelated() {
+        SvnTestServer.createEmpty().use { server ->
+            buildSubtreeHistory(server.openSvnRepository())
+            val reports = replaySubtree(server)
+            Assert.assertEquals(reports[2], " - open-root: r1\n")
+            Assert.assertTrue(reports[1]!!.contains("a.txt - add-file"), reports[1])
+            Assert.assertTrue(reports[3]!!.contains("a.txt - open-file"), reports[3])
+        }
+    }
+
+    @Test
+    fun testPartialReplayRemoveRoot() {
+        SvnTestServer.createEmpty().use { server ->
+            buildSubtreeHistory(server.openSvnRepository())
+            val reports = replaySubtree(server)
+            Assert.assertTrue(reports[4]!!.contains("delete-entry"), reports[4])
+        }
+    }
+
+    /**
+     * r1: create /sub, r2: change outside of /sub, r3: change inside /sub, r4: remove /sub.
+     */
+    private fun buildSubtreeHistory(repo: SVNRepository) {
+        val r1 = createCommit(repo, "Create subtree") { editor: ISVNEditor ->
+            editor.openRoot(0)
+            editor.addDir("/sub", null, -1)
+            editor.addFile("/sub/a.txt", null, -1)
+            editor.changeFileProperty("/sub/a.txt", SVNProperty.EOL_STYLE, SVNPropertyValue.create(SVNProperty.EOL_STYLE_NATIVE))
+            SvnTestHelper.sendDeltaAndClose(editor, "/sub/a.txt", null, "aaa")
+            editor.closeDir()
+            editor.closeDir()
+        }
+        val r2 = createCommit(repo, "Change outside of subtree") { editor: ISVNEditor ->
+            editor.openRoot(r1.newRevision)
+            editor.addFile("/other.txt", null, -1)
+            editor.changeFileProperty("/other.txt", SVNProperty.EOL_STYLE, SVNPropertyValue.create(SVNProperty.EOL_STYLE_NATIVE))
+            SvnTestHelper.sendDeltaAndClose(editor, "/other.txt", null, "bbb")
+            editor.closeDir()
+        }
+        val r3 = createCommit(repo, "Change inside of subtree") { editor: ISVNEditor ->
+            editor.openRoot(r2.newRevision)
+            editor.openDir("/sub", r2.newRevision)
+            editor.openFile("/sub/a.txt", r2.newRevision)
+            SvnTestHelper.sendDeltaAndClose(editor, "/sub/a.txt", "aaa", "ccc")
+            editor.closeDir()
+            editor.closeDir()
+        }
+        createCommit(repo, "Remove subtree") { editor: ISVNEditor ->
+            editor.openRoot(r3.newRevision)
+            editor.deleteEntry("/sub", r3.newRevision)
+            editor.closeDir()
+        }
+    }
+
+    private fun replaySubtree(server: SvnTestServer): Map<Long, String> {
+        val subRepo: SVNRepository = SvnTestServer.openSvnRepository(server.url.appendPath("sub", false), SvnTestServer.USER_NAME, SvnTestServer.PASSWORD)
+        val reports = TreeMap<Long, String>()
+        subRepo.replayRange(1, 4, 0, true, object : ISVNReplayHandler {
+            override fun handleStartRevision(revision: Long, revisionProperties: SVNProperties): ISVNEditor {
+                return ReportSVNEditor()
+            }
+
+            override fun handleEndRevision(revision: Long, revisionProperties: SVNProperties, editor: ISVNEditor) {
+                reports[revision] = editor.toString()
+            }
+        })
+        return reports
+    }
+
+    @Test
+    fun testReplayLookAheadOverBudget() {
+        SvnTestServer.createEmpty { config ->
+            config.replayLookAhead = 2
+            config.replayLookAheadMemoryMb = 1
+        }.use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            SvnTestHelper.createFile(repo, "/a.txt", "a1", SvnFilePropertyTest.propsEolNative)
+            // Revision doesn't fit into look-ahead memory budget and must be replayed inline.
+            val big = ByteArray(2 * 1024 * 1024)
+            Random(42).nextBytes(big)
+            SvnTestHelper.createFile(repo, "/big.bin", big, SvnFilePropertyTest.propsBinary)
+            SvnTestHelper.modifyFile(repo, "/a.txt", "a2", repo.latestRevision)
+            SvnTestHelper.createFile(repo, "/b.txt", "b1", SvnFilePropertyTest.propsEolNative)
+            val latest: Long = repo.latestRevision
+
+            val range = TreeMap<Long, String>()
+            repo.replayRange(1, latest, 0, true, object : ISVNReplayHandler {
+                override fun handleStartRevision(revision: Long, revisionProperties: SVNProperties): ISVNEditor {
+                    return DeltaReportEditor()
+                }
+
+                override fun handleEndRevision(revision: Long, revisionProperties: SVNProperties, editor: ISVNEditor) {
+                    range[revision] = editor.toString()
+                }
+            })
+            val inline = TreeMap<Long, String>()
+            for (revision in 1..latest) {
+                val editor = DeltaReportEditor()
+                repo.replay(0, revision, true, editor)
+                inline[revision] = editor.toString()
+            }
+            Assert.assertEquals(range, inline)
+        }
+    }
+
+    /**
+     * Report editor, that also records hash of delta windows.
+     */
+    private class DeltaReportEditor(private val report: ReportSVNEditor = ReportSVNEditor()) : ISVNEditor by report {
+        private val hasher: Hasher = Hashing.sha256().newHasher()
+
+        override fun textDeltaChunk(path: String, diffWindow: SVNDiffWindow): OutputStream? {
+            hasher.putString(path, StandardCharsets.UTF_8)
+            diffWindow.writeTo(Funnels.asOutputStream(hasher), false)
+            return report.textDeltaChunk(path, diffWindow)
+        }
+
+        override fun toString(): String {
+            return report.toString() + "delta: " + hasher.hash() + "\n"
+        }
+    }
+
     @Test
     fun testReplaySelfWithUpdate() {
         checkReplaySelf { srcRepo: SVNRepository, dstRepo: SVNRepository, revision: Long -> updateRevision(srcRepo, dstRepo, revision) }
@@ -0,0 +1,56 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import org.eclipse.jgit.lib.Constants
+import org.eclipse.jgit.lib.FileMode
+import org.eclipse.jgit.lib.ObjectId
+import org.eclipse.jgit.lib.TreeFormatter
+import org.testng.Assert
+import org.testng.annotations.Test
+import svnserver.TestHelper
+import java.nio.charset.StandardCharsets
+
+/**
+ * Test for GitTreeCache.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GitTreeCacheTest {
+    @Test
+    fun testLoad() {
+        TestHelper.emptyRepository().use { repo ->
+            val blobId: ObjectId = repo.newObjectInserter().use { inserter ->
+                val result: ObjectId = inserter.insert(Constants.OBJ_BLOB, "Hello".toByteArray(StandardCharsets.UTF_8))
+                inserter.flush()
+                result
+            }
+            val treeId: ObjectId = repo.newObjectInserter().use { inserter ->
+                val subTree = TreeFormatter()
+                subTree.append("file.txt", FileMode.REGULAR_FILE, blobId)
+                val subTreeId: ObjectId = inserter.insert(subTree)
+                val tree = TreeFormatter()
+                tree.append("dir", FileMode.TREE, subTreeId)
+                tree.append("run.sh", FileMode.EXECUTABLE_FILE, blobId)
+                tree.append("файл.txt", FileMode.REGULAR_FILE, blobId)
+                val result: ObjectId = inserter.insert(tree)
+                inserter.flush()
+                result
+            }
+            val cache = GitTreeCache(1)
+            val expected: List<GitTreeEntry> = cache.load(GitObject(repo, treeId))
+            Assert.assertEquals(expected.map { entry -> entry.fileName }, listOf("dir", "run.sh", "файл.txt"))
+            Assert.assertEquals(expected.map { entry -> entry.fileMode }, listOf(FileMode.TREE, FileMode.EXECUTABLE_FILE, FileMode.REGULAR_FILE))
+            Assert.assertEquals(expected[1].objectId.`object`, blobId)
+
+            Assert.assertEquals(cache.load(GitObject(repo, treeId)), expected)
+            Assert.assertEquals(cache.stats.hitCount(), 1)
+            Assert.assertEquals(cache.stats.missCount(), 1)
+        }
+    }
+}
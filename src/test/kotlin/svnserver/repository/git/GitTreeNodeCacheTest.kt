@@ -0,0 +1,62 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import com.google.common.cache.CacheStats
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.tmatesoft.svn.core.SVNProperty
+import org.tmatesoft.svn.core.SVNPropertyValue
+import svnserver.SvnTestHelper
+import svnserver.SvnTestServer
+import svnserver.repository.RepositoryMapping
+
+/**
+ * Test for GitTreeNodeCache.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GitTreeNodeCacheTest {
+    @Test
+    fun reuseAncestors() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo = server.openSvnRepository()
+            val editor = repo.getCommitEditor("Create tree", null, false, null)
+            editor.openRoot(repo.latestRevision)
+            editor.addDir("/a", null, -1)
+            editor.addDir("/a/b", null, -1)
+            editor.addFile("/a/b/c.txt", null, -1)
+            editor.changeFileProperty("/a/b/c.txt", SVNProperty.EOL_STYLE, SVNPropertyValue.create(SVNProperty.EOL_STYLE_NATIVE))
+            SvnTestHelper.sendDeltaAndClose(editor, "/a/b/c.txt", null, "ccc")
+            editor.closeDir()
+            editor.closeDir()
+            editor.closeDir()
+            editor.closeEdit()
+
+            val repository = server.context.sure(RepositoryMapping::class.java).mapping.values.first() as GitRepository
+            val revision: GitRevision = repository.branches.values.first().latestRevision
+            val cache: GitTreeNodeCache = server.context.sure(GitTreeNodeCache::class.java)
+
+            Assert.assertNotNull(revision.getFile("/a/b/c.txt"))
+            var before: CacheStats = cache.stats
+            // Root, /a and /a/b are resolved already.
+            Assert.assertEquals(revision.getFile("/a/b/c.txt")!!.fileName, "c.txt")
+            var delta: CacheStats = cache.stats.minus(before)
+            Assert.assertEquals(delta.missCount(), 0)
+            Assert.assertEquals(delta.hitCount(), 3)
+
+            // Child lookup doesn't resolve parent again.
+            val dir: GitFile = revision.getFile("/a")!!
+            before = cache.stats
+            Assert.assertEquals(dir.getEntry("b")!!.getEntry("c.txt")!!.fileName, "c.txt")
+            delta = cache.stats.minus(before)
+            Assert.assertEquals(delta.missCount(), 0)
+            Assert.assertEquals(delta.hitCount(), 1)
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git
+
+import org.testng.Assert
+import org.testng.annotations.Test
+
+/**
+ * Test for PathRevisionIndex.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class PathRevisionIndexTest {
+    @Test
+    fun testLastChange() {
+        val index = PathRevisionIndex()
+        index.add("foo", 2, false)
+        index.add("foo", 5, false)
+        index.add("foo", 7, true)
+        index.add("foo", 10, false)
+        index.add("bar", 3, false)
+
+        Assert.assertNull(index.getLastChange("foo", 1))
+        Assert.assertEquals(index.getLastChange("foo", 2), 2)
+        Assert.assertEquals(index.getLastChange("foo", 4), 2)
+        Assert.assertEquals(index.getLastChange("foo", 6), 5)
+        Assert.assertNull(index.getLastChange("foo", 7))
+        Assert.assertNull(index.getLastChange("foo", 9))
+        Assert.assertEquals(index.getLastChange("foo", 10), 10)
+        Assert.assertEquals(index.getLastChange("foo", 100), 10)
+        Assert.assertEquals(index.getLastChange("bar", 100), 3)
+        Assert.assertNull(index.getLastChange("baz", 100))
+    }
+
+    @Test
+    fun testNextRemoval() {
+        val index = PathRevisionIndex()
+        index.add("foo", 2, false)
+        index.add("foo", 5, false)
+        index.add("foo", 7, true)
+        index.add("foo", 10, false)
+        index.add("foo", 12, true)
+        index.add("bar", 3, false)
+
+        Assert.assertEquals(index.getNextRemoval("foo", 2), 7)
+        Assert.assertEquals(index.getNextRemoval("foo", 6), 7)
+        Assert.assertEquals(index.getNextRemoval("foo", 7), 12)
+        Assert.assertEquals(index.getNextRemoval("foo", 10), 12)
+        Assert.assertNull(index.getNextRemoval("foo", 12))
+        Assert.assertNull(index.getNextRemoval("bar", 3))
+        Assert.assertNull(index.getNextRemoval("baz", 3))
+    }
+
+    @Test
+    fun testClear() {
+        val index = PathRevisionIndex()
+        index.add("foo", 1, false)
+        index.clear()
+        Assert.assertNull(index.getLastChange("foo", 1))
+        Assert.assertEquals(index.size, 0)
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.repository.git.filter
+
+import org.eclipse.jgit.lib.ObjectId
+import org.mapdb.DB
+import org.mapdb.DBMaker.memoryDB
+import org.mapdb.Serializer
+import org.testng.Assert
+import org.testng.annotations.Test
+import svnserver.context.SharedContext
+import java.nio.file.Paths
+
+/**
+ * Test for GitFilterCache.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GitFilterCacheTest {
+    @Test
+    fun testRecords() {
+        SharedContext.create(Paths.get("/nonexistent"), "realm", memoryDB().make(), emptyList()).use { context ->
+            val raw: GitFilterCache.Filter = GitFilterCache.get(context).getFilter("raw")
+            val gzip: GitFilterCache.Filter = GitFilterCache.get(context).getFilter("gzip")
+            val md5 = ByteArray(16) { i -> (i * 17).toByte() }
+
+            Assert.assertNull(raw.getMd5(objectA))
+            raw.putBinary(objectA, true)
+            raw.putMetadata(objectA, md5, 0x123456789AL)
+            Assert.assertEquals(raw.getMd5(objectA), "00112233445566778899aabbccddeeff")
+            Assert.assertEquals(raw.getSize(objectA), 0x123456789AL)
+            Assert.assertEquals(raw.isBinary(objectA), true)
+
+            Assert.assertNull(gzip.getSize(objectA))
+            gzip.putBinary(objectA, false)
+            Assert.assertEquals(gzip.isBinary(objectA), false)
+            Assert.assertNull(gzip.getMd5(objectA))
+            Assert.assertNull(raw.getSize(objectB))
+        }
+    }
+
+    @Test
+    fun testMigration() {
+        val db: DB = memoryDB().make()
+        db.hashMap("cache.filter.gzip.md5", Serializer.STRING, Serializer.STRING).createOrOpen()[objectA.name()] = "00112233445566778899aabbccddeeff"
+        db.hashMap("cache.filter.gzip.size", Serializer.STRING, Serializer.LONG).createOrOpen()[objectA.name()] = 42L
+        db.hashMap("cache.binary", Serializer.STRING, Serializer.BOOLEAN).createOrOpen()["gzip " + objectB.name()] = true
+        SharedContext.create(Paths.get("/nonexistent"), "realm", db, emptyList()).use { context ->
+            val gzip: GitFilterCache.Filter = GitFilterCache.get(context).getFilter("gzip")
+            Assert.assertEquals(gzip.getMd5(objectA), "00112233445566778899aabbccddeeff")
+            Assert.assertEquals(gzip.getSize(objectA), 42L)
+            Assert.assertNull(gzip.isBinary(objectA))
+            Assert.assertEquals(gzip.isBinary(objectB), true)
+            Assert.assertTrue(db.hashMap("cache.filter.gzip.md5", Serializer.STRING, Serializer.STRING).createOrOpen().isEmpty())
+            Assert.assertTrue(db.hashMap("cache.binary", Serializer.STRING, Serializer.BOOLEAN).createOrOpen().isEmpty())
+        }
+    }
+
+    companion object {
+        private val objectA: ObjectId = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567")
+        private val objectB: ObjectId = ObjectId.fromString("fedcba9876543210fedcba9876543210fedcba98")
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.tmatesoft.svn.core.SVNErrorCode
+import org.tmatesoft.svn.core.SVNException
+import org.tmatesoft.svn.core.io.SVNRepository
+import svnserver.SvnTestHelper
+import svnserver.SvnTestServer
+
+/**
+ * Check get-deleted-rev command.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class GetDeletedRevTest {
+    @Test
+    fun deletedInRange() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            createHistory(repo)
+            Assert.assertEquals(getDeletedRevision(repo, "a.txt", 1, 5), 4L)
+            Assert.assertEquals(getDeletedRevision(repo, "a.txt", 3, 4), 4L)
+        }
+    }
+
+    @Test
+    fun notDeleted() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            createHistory(repo)
+            Assert.assertEquals(getDeletedRevision(repo, "b.txt", 2, 5), SVNRepository.INVALID_REVISION)
+            // Deleted after end of range.
+            Assert.assertEquals(getDeletedRevision(repo, "a.txt", 1, 3), SVNRepository.INVALID_REVISION)
+        }
+    }
+
+    @Test
+    fun missingAtPeg() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            createHistory(repo)
+            Assert.assertEquals(getDeletedRevision(repo, "a.txt", 4, 5), SVNRepository.INVALID_REVISION)
+            Assert.assertEquals(getDeletedRevision(repo, "missing.txt", 1, 5), SVNRepository.INVALID_REVISION)
+        }
+    }
+
+    /**
+     * r1: add /a.txt, r2: add /b.txt, r3: modify /a.txt, r4: remove /a.txt, r5: modify /b.txt.
+     */
+    private fun createHistory(repo: SVNRepository) {
+        SvnTestHelper.createFile(repo, "/a.txt", "a1", SvnFilePropertyTest.propsEolNative)
+        SvnTestHelper.createFile(repo, "/b.txt", "b1", SvnFilePropertyTest.propsEolNative)
+        SvnTestHelper.modifyFile(repo, "/a.txt", "a2", repo.latestRevision)
+        SvnTestHelper.deleteFile(repo, "/a.txt")
+        SvnTestHelper.modifyFile(repo, "/b.txt", "b2", repo.latestRevision)
+    }
+
+    /**
+     * Server answers "not deleted" with ENTRY_MISSING_REVISION error, same as svnserve.
+     */
+    private fun getDeletedRevision(repo: SVNRepository, path: String, pegRevision: Long, endRevision: Long): Long {
+        return try {
+            repo.getDeletedRevision(path, pegRevision, endRevision)
+        } catch (e: SVNException) {
+            Assert.assertEquals(e.errorMessage.errorCode, SVNErrorCode.ENTRY_MISSING_REVISION)
+            SVNRepository.INVALID_REVISION
+        }
+    }
+}
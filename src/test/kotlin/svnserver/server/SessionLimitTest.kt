@@ -0,0 +1,44 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import svnserver.SvnTestServer
+import java.net.Socket
+import java.net.SocketTimeoutException
+
+/**
+ * Check maxSessions limit.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class SessionLimitTest {
+    @Test(timeOut = 30000)
+    fun waitForFreeSlot() {
+        SvnTestServer.createEmpty { config -> config.maxSessions = 1 }.use { server ->
+            val url = server.url
+            Socket(url.host, url.port).use { first ->
+                // First session gets server greeting.
+                Assert.assertTrue(first.getInputStream().read() >= 0)
+                Socket(url.host, url.port).use { second ->
+                    // Second session waits until first one is closed.
+                    second.soTimeout = 1000
+                    try {
+                        second.getInputStream().read()
+                        Assert.fail("Session over limit must not be served")
+                    } catch (ignored: SocketTimeoutException) {
+                    }
+                    first.close()
+                    second.soTimeout = 10000
+                    Assert.assertTrue(second.getInputStream().read() >= 0)
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.tmatesoft.svn.core.SVNDepth
+import org.tmatesoft.svn.core.SVNDirEntry
+import org.tmatesoft.svn.core.SVNNodeKind
+import org.tmatesoft.svn.core.SVNProperty
+import org.tmatesoft.svn.core.SVNPropertyValue
+import org.tmatesoft.svn.core.io.ISVNEditor
+import org.tmatesoft.svn.core.io.SVNRepository
+import svnserver.SvnTestHelper
+import svnserver.SvnTestServer
+import svnserver.auth.ACL
+import svnserver.repository.RepositoryMapping
+import svnserver.repository.VcsAccess
+import svnserver.repository.git.GitRepository
+import java.util.*
+
+/**
+ * Check svn list behaviour.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class SvnListTest {
+    @Test
+    fun depth() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            createTree(repo)
+            Assert.assertEquals(list(repo, SVNDepth.EMPTY).keys, setOf(""))
+            Assert.assertEquals(list(repo, SVNDepth.FILES).keys, setOf("", "a.txt"))
+            Assert.assertEquals(list(repo, SVNDepth.IMMEDIATES).keys, setOf("", "a.txt", "dir", "secret"))
+            Assert.assertEquals(list(repo, SVNDepth.INFINITY).keys, setOf("", "a.txt", "dir", "dir/b.txt", "dir/sub", "dir/sub/c.txt", "secret", "secret/d.txt"))
+            Assert.assertEquals(list(repo, SVNDepth.IMMEDIATES, path = "dir").keys, setOf("", "b.txt", "sub"))
+        }
+    }
+
+    @Test
+    fun patterns() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            createTree(repo)
+            Assert.assertEquals(list(repo, SVNDepth.INFINITY, patterns = listOf("*.txt")).keys, setOf("a.txt", "dir/b.txt", "dir/sub/c.txt", "secret/d.txt"))
+            Assert.assertEquals(list(repo, SVNDepth.INFINITY, patterns = listOf("b.*", "sub")).keys, setOf("dir/b.txt", "dir/sub"))
+        }
+    }
+
+    @Test
+    fun direntFields() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            createTree(repo)
+            val revision: Long = repo.latestRevision
+
+            val full: SVNDirEntry = list(repo, SVNDepth.FILES)["a.txt"]!!
+            Assert.assertEquals(full.kind, SVNNodeKind.FILE)
+            Assert.assertEquals(full.size, 3L)
+            Assert.assertEquals(full.revision, revision)
+            Assert.assertEquals(full.author, SvnTestServer.USER_NAME)
+            Assert.assertNotNull(full.date)
+            Assert.assertEquals(list(repo, SVNDepth.IMMEDIATES)["dir"]!!.kind, SVNNodeKind.DIR)
+
+            val kindOnly: SVNDirEntry = list(repo, SVNDepth.FILES, SVNDirEntry.DIRENT_KIND)["a.txt"]!!
+            Assert.assertEquals(kindOnly.kind, SVNNodeKind.FILE)
+            Assert.assertNull(kindOnly.author)
+            Assert.assertNull(kindOnly.date)
+        }
+    }
+
+    @Test
+    fun nestedDenied() {
+        SvnTestServer.createEmpty().use { server ->
+            createTree(server.openSvnRepository())
+            val acl = ACL(
+                emptyMap(), mapOf(
+                    "/" to Collections.singletonMap(SvnTestServer.USER_NAME, "rw"),
+                    "/secret" to Collections.singletonMap<String, String?>(SvnTestServer.USER_NAME, null),
+                )
+            )
+            setAccess(server, acl)
+            val repo: SVNRepository = server.openSvnRepository()
+            Assert.assertEquals(list(repo, SVNDepth.INFINITY).keys, setOf("", "a.txt", "dir", "dir/b.txt", "dir/sub", "dir/sub/c.txt"))
+            Assert.assertEquals(list(repo, SVNDepth.INFINITY, path = "dir").keys, setOf("", "b.txt", "sub", "sub/c.txt"))
+        }
+    }
+
+    /**
+     * Create tree: /a.txt, /dir/b.txt, /dir/sub/c.txt, /secret/d.txt
+     */
+    private fun createTree(repo: SVNRepository) {
+        val editor = repo.getCommitEditor("Create tree", null, false, null)
+        editor.openRoot(repo.latestRevision)
+        addFile(editor, "/a.txt", "aaa")
+        editor.addDir("/dir", null, -1)
+        addFile(editor, "/dir/b.txt", "bbb")
+        editor.addDir("/dir/sub", null, -1)
+        addFile(editor, "/dir/sub/c.txt", "ccc")
+        editor.closeDir()
+        editor.closeDir()
+        editor.addDir("/secret", null, -1)
+        addFile(editor, "/secret/d.txt", "ddd")
+        editor.closeDir()
+        editor.closeDir()
+        editor.closeEdit()
+    }
+
+    private fun addFile(editor: ISVNEditor, path: String, content: String) {
+        editor.addFile(path, null, -1)
+        editor.changeFileProperty(path, SVNProperty.EOL_STYLE, SVNPropertyValue.create(SVNProperty.EOL_STYLE_NATIVE))
+        SvnTestHelper.sendDeltaAndClose(editor, path, null, content)
+    }
+
+    private fun list(repo: SVNRepository, depth: SVNDepth, fields: Int = SVNDirEntry.DIRENT_ALL, patterns: Collection<String>? = null, path: String = ""): Map<String, SVNDirEntry> {
+        val result = TreeMap<String, SVNDirEntry>()
+        repo.list(path, repo.latestRevision, depth, fields, patterns) { entry -> result[entry.relativePath] = entry }
+        return result
+    }
+
+    private fun setAccess(server: SvnTestServer, access: VcsAccess) {
+        for (repository in server.context.sure(RepositoryMapping::class.java).mapping.values) {
+            val context = (repository as GitRepository).context
+            context.remove(VcsAccess::class.java)
+            context.add(VcsAccess::class.java, access)
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.tmatesoft.svn.core.SVNProperty
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import org.tmatesoft.svn.core.io.SVNRepository
+import svnserver.SvnTestHelper
+import svnserver.SvnTestServer
+import svnserver.repository.RepositoryMapping
+import svnserver.repository.git.GitFile
+import svnserver.repository.git.GitRepository
+import svnserver.server.SvnFilePropertyTest
+import java.util.*
+
+/**
+ * Test for per-file compression selection.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class CompressionPolicyTest {
+    @Test
+    fun probeBinary() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            // Binary, but compressible: zero bytes with some noise.
+            val sparse = ByteArray(PROBE_FILE_SIZE)
+            for (i in sparse.indices step 64) sparse[i] = i.toByte()
+            SvnTestHelper.createFile(repo, "/sparse.bin", sparse, SvnFilePropertyTest.propsBinary)
+            // Already compressed content.
+            val noise = ByteArray(PROBE_FILE_SIZE)
+            Random(1).nextBytes(noise)
+            noise[0] = 0
+            SvnTestHelper.createFile(repo, "/noise.bin", noise, SvnFilePropertyTest.propsBinary)
+
+            val policy = CompressionPolicy(SVNDeltaCompression.Zlib, true)
+            Assert.assertEquals(policy.select(getFile(server, "/sparse.bin")), SVNDeltaCompression.Zlib)
+            Assert.assertEquals(policy.select(getFile(server, "/noise.bin")), SVNDeltaCompression.None)
+            Assert.assertEquals(policy.probeCount, 2)
+        }
+    }
+
+    @Test
+    fun textNotProbed() {
+        SvnTestServer.createEmpty().use { server ->
+            val repo: SVNRepository = server.openSvnRepository()
+            val text = StringBuilder()
+            val random = Random(2)
+            while (text.length < PROBE_FILE_SIZE) text.append(Integer.toHexString(random.nextInt())).append('\n')
+            SvnTestHelper.createFile(repo, "/text.txt", text.toString(), SvnFilePropertyTest.propsEolNative)
+
+            val policy = CompressionPolicy(SVNDeltaCompression.Zlib, true)
+            val file: GitFile = getFile(server, "/text.txt")
+            Assert.assertNull(file.properties[SVNProperty.MIME_TYPE])
+            Assert.assertEquals(policy.select(file), SVNDeltaCompression.Zlib)
+            Assert.assertEquals(policy.probeCount, 0)
+        }
+    }
+
+    @Test
+    fun notAdaptive() {
+        SvnTestServer.createEmpty().use { server ->
+            val noise = ByteArray(PROBE_FILE_SIZE)
+            Random(3).nextBytes(noise)
+            noise[0] = 0
+            SvnTestHelper.createFile(server.openSvnRepository(), "/noise.bin", noise, SvnFilePropertyTest.propsBinary)
+
+            val policy = CompressionPolicy(SVNDeltaCompression.Zlib, false)
+            Assert.assertEquals(policy.select(getFile(server, "/noise.bin")), SVNDeltaCompression.Zlib)
+            Assert.assertEquals(policy.probeCount, 0)
+        }
+    }
+
+    private fun getFile(server: SvnTestServer, path: String): GitFile {
+        val repository = server.context.sure(RepositoryMapping::class.java).mapping.values.first() as GitRepository
+        return repository.branches.values.first().latestRevision.getFile(path)!!
+    }
+
+    companion object {
+        private const val PROBE_FILE_SIZE: Int = 32 * 1024
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import org.mapdb.DBMaker
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import svnserver.SvnTestHelper
+import svnserver.SvnTestServer
+import svnserver.TestHelper
+import svnserver.repository.RepositoryMapping
+import svnserver.repository.git.GitFile
+import svnserver.repository.git.GitRepository
+import svnserver.server.SvnFilePropertyTest
+import java.io.ByteArrayOutputStream
+import java.util.*
+
+/**
+ * Test for DeltaCache.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class DeltaCacheTest {
+    @Test
+    fun persistedHitAndMiss() {
+        val tempDir = TestHelper.createTempDir("git-as-svn")
+        try {
+            val file = tempDir.resolve("cache.db").toFile()
+            val windows = listOf("first".toByteArray(), ByteArray(0), "second".toByteArray())
+            DBMaker.fileDB(file).make().use { db -> DeltaCache(db, 100).put("key", windows) }
+
+            DBMaker.fileDB(file).make().use { db ->
+                val cache = DeltaCache(db, 100)
+                val cached: List<ByteArray> = cache.get("key")!!
+                Assert.assertEquals(cached.size, windows.size)
+                for (i in windows.indices) Assert.assertEquals(cached[i], windows[i])
+                Assert.assertNull(cache.get("missing"))
+                Assert.assertEquals(cache.stats.hitCount(), 1)
+                Assert.assertEquals(cache.stats.missCount(), 1)
+            }
+        } finally {
+            TestHelper.deleteDirectory(tempDir)
+        }
+    }
+
+    @Test
+    fun compressionIsPartOfKey() {
+        SvnTestServer.createEmpty().use { server ->
+            SvnTestHelper.createFile(server.openSvnRepository(), "/a.txt", "a".repeat(10000), SvnFilePropertyTest.propsEolNative)
+            val file: GitFile = getFile(server, "/a.txt")
+            DBMaker.memoryDB().make().use { db ->
+                val cache = DeltaCache(db, 100)
+                val plain: ByteArray = encode(cache, file, SVNDeltaCompression.None)
+                Assert.assertNotNull(cache.get(DeltaCache.key(null, file, SVNDeltaCompression.None)))
+                Assert.assertNull(cache.get(DeltaCache.key(null, file, SVNDeltaCompression.Zlib)))
+
+                val compressed: ByteArray = encode(cache, file, SVNDeltaCompression.Zlib)
+                Assert.assertTrue(compressed.size < plain.size)
+                // Cached deltas are returned for matching compression only.
+                Assert.assertEquals(encode(cache, file, SVNDeltaCompression.None), plain)
+                Assert.assertEquals(encode(cache, file, SVNDeltaCompression.Zlib), compressed)
+            }
+        }
+    }
+
+    @Test
+    fun bigDeltaSkipped() {
+        SvnTestServer.createEmpty().use { server ->
+            val content = ByteArray(DeltaCache.MAX_DELTA_SIZE + 1024)
+            Random(0).nextBytes(content)
+            SvnTestHelper.createFile(server.openSvnRepository(), "/big.bin", content, SvnFilePropertyTest.propsBinary)
+            val file: GitFile = getFile(server, "/big.bin")
+            DBMaker.memoryDB().make().use { db ->
+                val cache = DeltaCache(db, 100)
+                val expected: ByteArray = encode(cache, file, SVNDeltaCompression.None)
+                Assert.assertTrue(expected.size > DeltaCache.MAX_DELTA_SIZE)
+                Assert.assertNull(cache.get(DeltaCache.key(null, file, SVNDeltaCompression.None)))
+                Assert.assertEquals(encode(cache, file, SVNDeltaCompression.None), expected)
+            }
+        }
+    }
+
+    private fun encode(cache: DeltaCache, file: GitFile, compression: SVNDeltaCompression): ByteArray {
+        val output = ByteArrayOutputStream()
+        val md5: String = DeltaCmd.encodeDelta(cache, DeltaWindowBuffer(), null, file, CompressionPolicy(compression, false)) { data: ByteArray, offset: Int, length: Int ->
+            output.write(data, offset, length)
+        }
+        Assert.assertEquals(md5, file.md5)
+        return output.toByteArray()
+    }
+
+    private fun getFile(server: SvnTestServer, path: String): GitFile {
+        val repository = server.context.sure(RepositoryMapping::class.java).mapping.values.first() as GitRepository
+        return repository.branches.values.first().latestRevision.getFile(path)!!
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of git-as-svn. It is subject to the license terms
+ * in the LICENSE file found in the top-level directory of this distribution
+ * and at http://www.gnu.org/licenses/gpl-2.0.html. No part of git-as-svn,
+ * including this file, may be copied, modified, propagated, or distributed
+ * except according to the terms contained in the LICENSE file.
+ */
+package svnserver.server.command
+
+import org.testng.Assert
+import org.testng.annotations.DataProvider
+import org.testng.annotations.Test
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCompression
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaReader
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil
+import org.tmatesoft.svn.core.io.ISVNDeltaConsumer
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.OutputStream
+import java.security.MessageDigest
+import java.util.*
+
+/**
+ * Round-trip tests for insert-only svndiff encoder.
+ *
+ * @author Artem V. Navrotskiy <bozaro@users.noreply.github.com>
+ */
+class FulltextEncoderTest {
+    @DataProvider
+    fun encodeData(): Array<Array<out Any>> {
+        val result = ArrayList<Array<out Any>>()
+        for (compression in SVNDeltaCompression.values()) {
+            for (size in intArrayOf(0, 10, 0x40, FulltextEncoder.WINDOW_SIZE, FulltextEncoder.WINDOW_SIZE * 2 + 17)) {
+                result.add(arrayOf(compression, size))
+            }
+        }
+        return result.toTypedArray()
+    }
+
+    @Test(dataProvider = "encodeData")
+    fun roundTrip(compression: SVNDeltaCompression, size: Int) {
+        val content = ByteArray(size)
+        Random(size.toLong()).nextBytes(content)
+        // Make part of content compressible.
+        Arrays.fill(content, 0, size / 2, 'a'.toByte())
+
+        val processor = SVNDeltaProcessor()
+        val output = ByteArrayOutputStream()
+        processor.applyTextDelta(SVNFileUtil.DUMMY_IN, output, true)
+        val reader = SVNDeltaReader()
+        val deltaConsumer = object : ISVNDeltaConsumer {
+            override fun applyTextDelta(path: String?, baseChecksum: String?) {}
+
+            override fun textDeltaChunk(path: String?, diffWindow: SVNDiffWindow): OutputStream {
+                return processor.textDeltaChunk(diffWindow)
+            }
+
+            override fun textDeltaEnd(path: String?) {}
+        }
+        val md5: String = FulltextEncoder.encode(ByteArrayInputStream(content), DeltaWindowBuffer(), compression, null) { data: ByteArray, offset: Int, length: Int ->
+            reader.nextWindow(data, offset, length, "", deltaConsumer)
+        }
+        reader.reset("", deltaConsumer)
+        Assert.assertEquals(processor.textDeltaEnd(), md5)
+        Assert.assertEquals(md5, SVNFileUtil.toHexDigest(MessageDigest.getInstance("MD5").digest(content)))
+        Assert.assertEquals(output.toByteArray(), content)
+    }
+}